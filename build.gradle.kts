@@ -11,6 +11,7 @@ plugins {
     id("com.github.ben-manes.versions") version "0.39.0"
     id("com.github.gradle-git-version-calculator") version "1.1.0"
     id("io.freefair.lombok") version "6.2.0"
+    id("me.champeau.jmh") version "0.6.6"
 }
 
 group = "com.github.1c-syntax"
@@ -84,6 +85,20 @@ tasks.test {
     }
 }
 
+// benchmarks run on the test corpus: ./gradlew jmh
+sourceSets {
+    named("jmh") {
+        resources.srcDir("src/test/resources/lexer")
+    }
+}
+
+jmh {
+    jmhVersion.set("1.33")
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+}
+
 tasks.check {
     dependsOn(tasks.jacocoTestReport)
 }
@@ -0,0 +1,74 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLTokenizer;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+// Highlighting category lookup of every token of the lexer corpus, alone and together with the fast lexer
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BSLHighlighterBenchmark {
+
+  private String content;
+  private int[] tokenTypes;
+
+  @Setup
+  public void setUp() throws IOException {
+    try (InputStream inputStream = BSLHighlighterBenchmark.class.getResourceAsStream("/corpus.bsl")) {
+      content = new String(Objects.requireNonNull(inputStream).readAllBytes(), StandardCharsets.UTF_8);
+    }
+    tokenTypes = new BSLTokenizer(content).getTokens().stream()
+      .mapToInt(Token::getType)
+      .toArray();
+  }
+
+  @Benchmark
+  public void classifyTokens(Blackhole blackhole) {
+    for (int tokenType : tokenTypes) {
+      blackhole.consume(BSLHighlighter.getTypeOfTextBSL(tokenType));
+    }
+  }
+
+  @Benchmark
+  public void lexAndClassifyTokens(Blackhole blackhole) {
+    var lexer = new FastBSLLexer(content);
+    for (var token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+      blackhole.consume(BSLHighlighter.getTypeOfTextBSL(token.getType()));
+    }
+  }
+}
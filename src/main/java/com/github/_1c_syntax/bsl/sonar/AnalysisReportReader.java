@@ -0,0 +1,221 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github._1c_syntax.bsl.languageserver.reporters.data.FileInfo;
+import com.github._1c_syntax.bsl.languageserver.reporters.databind.AnalysisInfoObjectMapper;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+// Streaming reader of BSL LS reports: every file entry is passed to the consumer as soon as it is decoded,
+// so the report is never held in memory as a whole.
+// Supports json reports of BSL LS and compact reports (see CompactReportWriter), both optionally gzip-compressed.
+// With a positive wait timeout the report is tailed while its producer is still writing it: reading stops
+// at the end of the json root object or at the end record of the compact report.
+public class AnalysisReportReader {
+
+  private static final String FILEINFOS_FIELD = "fileinfos";
+  private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+  private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+
+  private final ObjectMapper objectMapper = new AnalysisInfoObjectMapper();
+  private final long waitTimeoutMillis;
+
+  public AnalysisReportReader() {
+    this(0);
+  }
+
+  public AnalysisReportReader(long waitTimeoutMillis) {
+    this.waitTimeoutMillis = waitTimeoutMillis;
+  }
+
+  public void read(File reportFile, Consumer<AnalysisReportEntry> entryConsumer) throws IOException {
+    try (InputStream inputStream = openReport(reportFile);
+         JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+      var firstToken = parser.nextToken();
+      if (firstToken == JsonToken.START_OBJECT) {
+        readJsonReport(parser, entryConsumer);
+      } else if (firstToken == JsonToken.START_ARRAY) {
+        readCompactReport(parser, entryConsumer);
+      } else if (firstToken == null) {
+        throw new JsonParseException(parser, "Analysis report is empty");
+      } else {
+        throw new JsonParseException(parser, "Unsupported analysis report starting with " + firstToken);
+      }
+    }
+  }
+
+  private InputStream openReport(File reportFile) throws IOException {
+    InputStream fileInputStream = new FileInputStream(reportFile);
+    if (waitTimeoutMillis > 0) {
+      fileInputStream = new TailingInputStream(fileInputStream, waitTimeoutMillis);
+    }
+
+    var inputStream = new BufferedInputStream(fileInputStream);
+    inputStream.mark(2);
+    var firstByte = inputStream.read();
+    var secondByte = inputStream.read();
+    inputStream.reset();
+
+    if (firstByte == GZIP_MAGIC_FIRST_BYTE && secondByte == GZIP_MAGIC_SECOND_BYTE) {
+      return new BufferedInputStream(new GZIPInputStream(inputStream));
+    }
+    return inputStream;
+  }
+
+  private void readJsonReport(JsonParser parser, Consumer<AnalysisReportEntry> entryConsumer) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var fieldName = parser.getCurrentName();
+      var valueToken = parser.nextToken();
+
+      if (FILEINFOS_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          var fileInfo = objectMapper.readValue(parser, FileInfo.class);
+          entryConsumer.accept(new AnalysisReportEntry(fileInfo.getPath(), fileInfo.getDiagnostics()));
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static void readCompactReport(
+    JsonParser parser,
+    Consumer<AnalysisReportEntry> entryConsumer
+  ) throws IOException {
+    var format = parser.nextTextValue();
+    var version = parser.nextIntValue(-1);
+    if (!CompactReportWriter.FORMAT.equals(format) || version != CompactReportWriter.VERSION) {
+      throw new JsonParseException(parser, "Unsupported compact report format " + format + " version " + version);
+    }
+    expectEndOfRecord(parser);
+
+    List<String> strings = new ArrayList<>();
+    Path path = null;
+    List<Diagnostic> diagnostics = new ArrayList<>();
+    Diagnostic diagnostic = null;
+
+    while (parser.nextToken() == JsonToken.START_ARRAY) {
+      var recordType = parser.nextTextValue();
+
+      if (CompactReportWriter.STRING_RECORD.equals(recordType)) {
+        strings.add(parser.nextTextValue());
+      } else if (CompactReportWriter.END_RECORD.equals(recordType)) {
+        expectEndOfRecord(parser);
+        break;
+      } else if (CompactReportWriter.FILE_RECORD.equals(recordType)) {
+        if (path != null) {
+          entryConsumer.accept(new AnalysisReportEntry(path, diagnostics));
+        }
+        path = Path.of(strings.get(parser.nextIntValue(-1)));
+        diagnostics = new ArrayList<>();
+        diagnostic = null;
+      } else if (CompactReportWriter.DIAGNOSTIC_RECORD.equals(recordType) && path != null) {
+        diagnostic = readDiagnostic(parser, strings);
+        diagnostics.add(diagnostic);
+      } else if (CompactReportWriter.RELATED_INFORMATION_RECORD.equals(recordType) && diagnostic != null) {
+        addRelatedInformation(parser, strings, diagnostic);
+      } else {
+        throw new JsonParseException(parser, "Unexpected compact report record " + recordType);
+      }
+
+      expectEndOfRecord(parser);
+    }
+
+    if (path != null) {
+      entryConsumer.accept(new AnalysisReportEntry(path, diagnostics));
+    }
+  }
+
+  private static Diagnostic readDiagnostic(JsonParser parser, List<String> strings) throws IOException {
+    var diagnostic = new Diagnostic();
+    diagnostic.setCode(getString(strings, parser.nextIntValue(-1)));
+    diagnostic.setSource(getString(strings, parser.nextIntValue(-1)));
+    var severity = parser.nextIntValue(0);
+    if (severity > 0) {
+      diagnostic.setSeverity(DiagnosticSeverity.forValue(severity));
+    }
+    diagnostic.setMessage(getString(strings, parser.nextIntValue(-1)));
+    diagnostic.setRange(readRange(parser));
+    return diagnostic;
+  }
+
+  private static void addRelatedInformation(
+    JsonParser parser,
+    List<String> strings,
+    Diagnostic diagnostic
+  ) throws IOException {
+    var uri = getString(strings, parser.nextIntValue(-1));
+    var message = getString(strings, parser.nextIntValue(-1));
+    var range = readRange(parser);
+
+    var relatedInformation = diagnostic.getRelatedInformation();
+    if (relatedInformation == null) {
+      relatedInformation = new ArrayList<>();
+      diagnostic.setRelatedInformation(relatedInformation);
+    }
+    relatedInformation.add(new DiagnosticRelatedInformation(new Location(uri, range), message));
+  }
+
+  private static Range readRange(JsonParser parser) throws IOException {
+    var startLine = parser.nextIntValue(0);
+    var startCharacter = parser.nextIntValue(0);
+    var endLine = parser.nextIntValue(0);
+    var endCharacter = parser.nextIntValue(0);
+    return new Range(new Position(startLine, startCharacter), new Position(endLine, endCharacter));
+  }
+
+  @CheckForNull
+  private static String getString(List<String> strings, int index) {
+    if (index < 0) {
+      return null;
+    }
+    return strings.get(index);
+  }
+
+  private static void expectEndOfRecord(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.END_ARRAY) {
+      throw new JsonParseException(parser, "Unexpected end of compact report record");
+    }
+  }
+
+}
@@ -42,7 +42,27 @@ public final class BSLCommunityProperties {
   public static final String LANG_SERVER_CONFIGURATION_PATH_KEY = "sonar.bsl.languageserver.configurationPath";
   public static final String LANG_SERVER_OVERRIDE_CONFIGURATION_KEY = "sonar.bsl.languageserver.overrideConfiguration";
   public static final String LANG_SERVER_REPORT_PATH_KEY = "sonar.bsl.languageserver.reportPaths";
+  public static final String LANG_SERVER_REPORT_WAIT_TIMEOUT_KEY = "sonar.bsl.languageserver.reportWaitTimeout";
+  public static final String LANG_SERVER_REPORT_CACHE_DIR_KEY = "sonar.bsl.languageserver.reportCacheDir";
+  public static final String LANG_SERVER_REPORT_INCLUDE_CODES_KEY = "sonar.bsl.languageserver.report.includeCodes";
+  public static final String LANG_SERVER_REPORT_EXCLUDE_CODES_KEY = "sonar.bsl.languageserver.report.excludeCodes";
+  public static final String LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY = "sonar.bsl.languageserver.report.includeSources";
+  public static final String LANG_SERVER_REPORT_EXCLUDE_SOURCES_KEY = "sonar.bsl.languageserver.report.excludeSources";
+  public static final String LANG_SERVER_REPORT_INCLUDE_SEVERITIES_KEY = "sonar.bsl.languageserver.report.includeSeverities";
+  public static final String LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY = "sonar.bsl.languageserver.report.excludeSeverities";
+  public static final String LANG_SERVER_REPORT_INCLUDE_PATHS_KEY = "sonar.bsl.languageserver.report.includePaths";
+  public static final String LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY = "sonar.bsl.languageserver.report.excludePaths";
   public static final String BSL_FILE_EXTENSIONS_KEY = "sonar.bsl.file.suffixes";
+  public static final String ISSUES_MAX_PER_RULE_AND_FILE_KEY = "sonar.bsl.issues.maxPerRuleAndFile";
+  public static final String ISSUES_MAX_PER_PROJECT_KEY = "sonar.bsl.issues.maxPerProject";
+  public static final String ISSUES_MAX_RELATED_LOCATIONS_KEY = "sonar.bsl.issues.maxRelatedLocations";
+  public static final String CPD_NORMALIZE_TOKENS_KEY = "sonar.bsl.cpd.normalizeTokens";
+  public static final String CPD_MINIMUM_FILE_TOKENS_KEY = "sonar.bsl.cpd.minimumFileTokens";
+  public static final String LEXER_ONLY_MIN_LINES_KEY = "sonar.bsl.lexerOnly.minLines";
+  public static final String LEXER_ONLY_WITHOUT_DIAGNOSTICS_KEY = "sonar.bsl.lexerOnly.withoutDiagnostics";
+  public static final String LEXER_ONLY_SUPPORT_LOCKED_KEY = "sonar.bsl.lexerOnly.supportLocked";
+  public static final String LEXER_ONLY_ENGINE_KEY = "sonar.bsl.lexerOnly.engine";
+  public static final String LARGE_FILE_MIN_LINES_KEY = "sonar.bsl.largeFileMinLines";
 
   public static final Boolean LANG_SERVER_ENABLED_DEFAULT_VALUE = Boolean.TRUE;
   public static final String LANG_SERVER_DIAGNOSTIC_LANGUAGE_DEFAULT_VALUE = Language.RU.getLanguageCode();
@@ -52,6 +72,19 @@ public final class BSLCommunityProperties {
   public static final String LANG_SERVER_CONFIGURATION_PATH_DEFAULT_VALUE = ".bsl-language-server.json";
   public static final Boolean LANG_SERVER_OVERRIDE_CONFIGURATION_DEFAULT_VALUE = Boolean.FALSE;
   public static final String BSL_FILE_EXTENSIONS_DEFAULT_VALUE = ".bsl,.os";
+  public static final int ISSUES_MAX_PER_RULE_AND_FILE_DEFAULT_VALUE = 0;
+  public static final int ISSUES_MAX_PER_PROJECT_DEFAULT_VALUE = 0;
+  public static final int ISSUES_MAX_RELATED_LOCATIONS_DEFAULT_VALUE = 100;
+  public static final int LANG_SERVER_REPORT_WAIT_TIMEOUT_DEFAULT_VALUE = 0;
+  public static final Boolean CPD_NORMALIZE_TOKENS_DEFAULT_VALUE = Boolean.FALSE;
+  public static final int CPD_MINIMUM_FILE_TOKENS_DEFAULT_VALUE = 0;
+  public static final int LEXER_ONLY_MIN_LINES_DEFAULT_VALUE = 0;
+  public static final Boolean LEXER_ONLY_WITHOUT_DIAGNOSTICS_DEFAULT_VALUE = Boolean.FALSE;
+  public static final Boolean LEXER_ONLY_SUPPORT_LOCKED_DEFAULT_VALUE = Boolean.FALSE;
+  public static final String LEXER_ONLY_ENGINE_ANTLR = "antlr";
+  public static final String LEXER_ONLY_ENGINE_FAST = "fast";
+  public static final String LEXER_ONLY_ENGINE_DEFAULT_VALUE = LEXER_ONLY_ENGINE_ANTLR;
+  public static final int LARGE_FILE_MIN_LINES_DEFAULT_VALUE = 10000;
 
   public static final String BSL_CATEGORY = "1C (BSL)";
   private static final String EXTERNAL_ANALYZERS_CATEGORY = "External Analyzers";
@@ -126,6 +159,107 @@ public final class BSLCommunityProperties {
         .multiValues(true)
         .index(5)
         .build(),
+      PropertyDefinition.builder(ISSUES_MAX_PER_RULE_AND_FILE_KEY)
+        .name("Max issues per rule and file")
+        .description("Issues of one rule in one file over this limit are aggregated into one summary issue. " +
+          "0 means no limit.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(ISSUES_MAX_PER_RULE_AND_FILE_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(6)
+        .build(),
+      PropertyDefinition.builder(ISSUES_MAX_PER_PROJECT_KEY)
+        .name("Max issues per project")
+        .description("Issues over this limit are aggregated into one summary issue per rule and file. " +
+          "Summary issues are saved over this limit. 0 means no limit.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(ISSUES_MAX_PER_PROJECT_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(7)
+        .build(),
+      PropertyDefinition.builder(ISSUES_MAX_RELATED_LOCATIONS_KEY)
+        .name("Max related locations per issue")
+        .description("Related locations of an issue over this limit are not saved. 0 means no limit.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(ISSUES_MAX_RELATED_LOCATIONS_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(8)
+        .build(),
+      PropertyDefinition.builder(CPD_NORMALIZE_TOKENS_KEY)
+        .name("Normalize tokens for duplication detection")
+        .description("String, number and date literals are replaced with placeholders and keywords are compared " +
+          "regardless of case and language.")
+        .category(BSL_CATEGORY)
+        .defaultValue(CPD_NORMALIZE_TOKENS_DEFAULT_VALUE.toString())
+        .type(PropertyType.BOOLEAN)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(9)
+        .build(),
+      PropertyDefinition.builder(CPD_MINIMUM_FILE_TOKENS_KEY)
+        .name("Min tokens in file for duplication detection")
+        .description("Files with fewer tokens are not checked for duplications. 0 means all files are checked.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(CPD_MINIMUM_FILE_TOKENS_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(10)
+        .build(),
+      PropertyDefinition.builder(LEXER_ONLY_MIN_LINES_KEY)
+        .name("Min lines in file for lexer-only analysis")
+        .description("Files with at least this number of lines are only tokenized, without parsing: " +
+          "diagnostics, statements, functions and complexity are not computed for them. 0 means all files are " +
+          "parsed.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(LEXER_ONLY_MIN_LINES_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(11)
+        .build(),
+      PropertyDefinition.builder(LEXER_ONLY_WITHOUT_DIAGNOSTICS_KEY)
+        .name("Lexer-only analysis without BSL Language Server")
+        .description("When BSL Language Server is disabled, files are only tokenized, without parsing: " +
+          "statements, functions and complexity are not computed.")
+        .category(BSL_CATEGORY)
+        .defaultValue(LEXER_ONLY_WITHOUT_DIAGNOSTICS_DEFAULT_VALUE.toString())
+        .type(PropertyType.BOOLEAN)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(12)
+        .build(),
+      PropertyDefinition.builder(LEXER_ONLY_SUPPORT_LOCKED_KEY)
+        .name("Lexer-only analysis of modules locked by vendor support")
+        .description("Modules which are not editable according to the support settings of a parent " +
+          "configuration are only tokenized, without parsing: diagnostics, statements, functions and complexity " +
+          "are not computed for them.")
+        .category(BSL_CATEGORY)
+        .defaultValue(LEXER_ONLY_SUPPORT_LOCKED_DEFAULT_VALUE.toString())
+        .type(PropertyType.BOOLEAN)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(13)
+        .build(),
+      PropertyDefinition.builder(LEXER_ONLY_ENGINE_KEY)
+        .name("Lexer for lexer-only analysis")
+        .description("antlr - BSL parser lexer, fast - built-in lexer which gives only token categories needed " +
+          "for highlighting, duplications and line metrics.")
+        .category(BSL_CATEGORY)
+        .defaultValue(LEXER_ONLY_ENGINE_DEFAULT_VALUE)
+        .type(PropertyType.SINGLE_SELECT_LIST)
+        .options(LEXER_ONLY_ENGINE_ANTLR, LEXER_ONLY_ENGINE_FAST)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(14)
+        .build(),
+      PropertyDefinition.builder(LARGE_FILE_MIN_LINES_KEY)
+        .name("Min lines in large file")
+        .description("Files with at least this number of lines are analyzed first, largest first, so their " +
+          "diagnostics run in parallel with the analysis of other files. 0 keeps the original order of files.")
+        .category(BSL_CATEGORY)
+        .defaultValue(Integer.toString(LARGE_FILE_MIN_LINES_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(15)
+        .build(),
       PropertyDefinition.builder(LANG_SERVER_REPORT_PATH_KEY)
         .name("BSL Language Server Report Files")
         .description("Paths (absolute or relative) to xml files with BSL Language Server diagnostics")
@@ -135,6 +269,105 @@ public final class BSLCommunityProperties {
         .onQualifiers(Qualifiers.PROJECT)
         .multiValues(true)
         .index(0)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_WAIT_TIMEOUT_KEY)
+        .name("BSL Language Server Report Files wait timeout")
+        .description("Report files are read while BSL Language Server is still writing them. " +
+          "Import waits for new data up to this number of seconds. 0 means reports are read as complete files.")
+        .defaultValue(Integer.toString(LANG_SERVER_REPORT_WAIT_TIMEOUT_DEFAULT_VALUE))
+        .type(PropertyType.INTEGER)
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(1)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_INCLUDE_CODES_KEY)
+        .name("BSL Language Server Report - Include diagnostic codes")
+        .description("Only report diagnostics with these codes are imported. Empty means all codes.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(2)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_EXCLUDE_CODES_KEY)
+        .name("BSL Language Server Report - Exclude diagnostic codes")
+        .description("Report diagnostics with these codes are not imported.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(3)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY)
+        .name("BSL Language Server Report - Include diagnostic sources")
+        .description("Only report diagnostics with these sources (e.g. bsl-language-server, acc) are imported. " +
+          "Empty means all sources.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(4)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_EXCLUDE_SOURCES_KEY)
+        .name("BSL Language Server Report - Exclude diagnostic sources")
+        .description("Report diagnostics with these sources are not imported.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(5)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_INCLUDE_SEVERITIES_KEY)
+        .name("BSL Language Server Report - Include diagnostic severities")
+        .description("Only report diagnostics with these severities (error, warning, information, hint) are " +
+          "imported. Empty means all severities.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(6)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY)
+        .name("BSL Language Server Report - Exclude diagnostic severities")
+        .description("Report diagnostics with these severities (error, warning, information, hint) are not " +
+          "imported.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(7)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_INCLUDE_PATHS_KEY)
+        .name("BSL Language Server Report - Include file paths")
+        .description("Only report diagnostics of files matching these patterns (relative to the project base " +
+          "dir, e.g. src/**/*.bsl) are imported. Empty means all files.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(8)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY)
+        .name("BSL Language Server Report - Exclude file paths")
+        .description("Report diagnostics of files matching these patterns (relative to the project base dir) " +
+          "are not imported.")
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .multiValues(true)
+        .index(9)
+        .build(),
+      PropertyDefinition.builder(LANG_SERVER_REPORT_CACHE_DIR_KEY)
+        .name("BSL Language Server Report Files cache directory")
+        .description("Directory (absolute or relative to the project base dir) to keep imported reports in. " +
+          "Unchanged reports are imported from it without parsing. Empty means no cache.")
+        .defaultValue("")
+        .type(PropertyType.STRING)
+        .category(EXTERNAL_ANALYZERS_CATEGORY)
+        .subCategory(BSL_SUBCATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .index(10)
         .build()
     );
   }
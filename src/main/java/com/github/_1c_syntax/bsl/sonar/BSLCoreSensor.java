@@ -30,18 +30,18 @@ import com.github._1c_syntax.bsl.languageserver.context.MetricStorage;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticParameterInfo;
+import com.github._1c_syntax.bsl.parser.BSLTokenizer;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
-import com.github._1c_syntax.utils.Absolute;
+import com.github._1c_syntax.mdclasses.supportconf.SupportVariant;
 import me.tongfei.progressbar.ProgressBar;
 import me.tongfei.progressbar.ProgressBarBuilder;
 import me.tongfei.progressbar.ProgressBarStyle;
+import org.antlr.v4.runtime.ListTokenSource;
 import org.antlr.v4.runtime.Token;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.antlr.v4.runtime.TokenSource;
+import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
-import org.sonar.api.batch.fs.FilePredicates;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.rule.ActiveRules;
@@ -57,46 +57,78 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
 import java.io.File;
-import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class BSLCoreSensor implements Sensor {
 
   private static final Logger LOGGER = Loggers.get(BSLCoreSensor.class);
+  private static final int PREFETCH_IO_THREADS = 4;
+  private static final int PREFETCH_QUEUE_CAPACITY = 2 * Runtime.getRuntime().availableProcessors();
+  private static final int RESULT_WRITER_CAPACITY = 2 * Runtime.getRuntime().availableProcessors();
+  private static final int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+
   private final SensorContext context;
   private final FileLinesContextFactory fileLinesContextFactory;
 
   private final boolean langServerEnabled;
-  private final List<String> sourcesList;
+  private final boolean cpdNormalizeTokens;
+  private final int cpdMinimumFileTokens;
+  private final boolean lexerOnlyWithoutDiagnostics;
+  private final int lexerOnlyMinLines;
+  private final boolean lexerOnlySupportLocked;
+  private final boolean lexerOnlyFastEngine;
+  private final int largeFileMinLines;
+  private final InputFileIndex inputFileIndex;
   private final IssuesLoader issuesLoader;
   private final BSLHighlighter highlighter;
 
-  public BSLCoreSensor(SensorContext context, FileLinesContextFactory fileLinesContextFactory) {
+  public BSLCoreSensor(
+    SensorContext context,
+    FileLinesContextFactory fileLinesContextFactory,
+    IssueBudget issueBudget,
+    IssueDeduplicator issueDeduplicator
+  ) {
     this.context = context;
     this.fileLinesContextFactory = fileLinesContextFactory;
+    this.inputFileIndex = new InputFileIndex(context.fileSystem(), context.config());
 
     langServerEnabled = context.config().getBoolean(BSLCommunityProperties.LANG_SERVER_ENABLED_KEY)
       .orElse(BSLCommunityProperties.LANG_SERVER_ENABLED_DEFAULT_VALUE);
+    cpdNormalizeTokens = context.config().getBoolean(BSLCommunityProperties.CPD_NORMALIZE_TOKENS_KEY)
+      .orElse(BSLCommunityProperties.CPD_NORMALIZE_TOKENS_DEFAULT_VALUE);
+    cpdMinimumFileTokens = context.config().getInt(BSLCommunityProperties.CPD_MINIMUM_FILE_TOKENS_KEY)
+      .orElse(BSLCommunityProperties.CPD_MINIMUM_FILE_TOKENS_DEFAULT_VALUE);
+    lexerOnlyWithoutDiagnostics = context.config()
+      .getBoolean(BSLCommunityProperties.LEXER_ONLY_WITHOUT_DIAGNOSTICS_KEY)
+      .orElse(BSLCommunityProperties.LEXER_ONLY_WITHOUT_DIAGNOSTICS_DEFAULT_VALUE);
+    lexerOnlyMinLines = context.config().getInt(BSLCommunityProperties.LEXER_ONLY_MIN_LINES_KEY)
+      .orElse(BSLCommunityProperties.LEXER_ONLY_MIN_LINES_DEFAULT_VALUE);
+    lexerOnlySupportLocked = context.config().getBoolean(BSLCommunityProperties.LEXER_ONLY_SUPPORT_LOCKED_KEY)
+      .orElse(BSLCommunityProperties.LEXER_ONLY_SUPPORT_LOCKED_DEFAULT_VALUE);
+    lexerOnlyFastEngine = BSLCommunityProperties.LEXER_ONLY_ENGINE_FAST.equals(
+      context.config().get(BSLCommunityProperties.LEXER_ONLY_ENGINE_KEY)
+        .orElse(BSLCommunityProperties.LEXER_ONLY_ENGINE_DEFAULT_VALUE)
+    );
+    largeFileMinLines = context.config().getInt(BSLCommunityProperties.LARGE_FILE_MIN_LINES_KEY)
+      .orElse(BSLCommunityProperties.LARGE_FILE_MIN_LINES_DEFAULT_VALUE);
 
-    sourcesList = context.config().get("sonar.sources")
-      .map(sources ->
-        Arrays.stream(StringUtils.split(sources, ","))
-          .map(String::strip)
-          .collect(Collectors.toList()))
-      .orElse(Collections.singletonList("."));
-
-    issuesLoader = new IssuesLoader(context);
+    issuesLoader = new IssuesLoader(context, inputFileIndex, issueBudget, issueDeduplicator);
     highlighter = new BSLHighlighter(context);
   }
 
@@ -110,124 +142,256 @@ public class BSLCoreSensor implements Sensor {
   public void execute(SensorContext context) {
     LOGGER.info("Parsing files...");
 
-    FileSystem fileSystem = context.fileSystem();
-    File baseDir = fileSystem.baseDir();
-
-    var absoluteSourceDirs = sourcesList.stream()
-      .map((String sourceDir) -> {
-        Path sourcePath = Path.of(sourceDir.trim());
-        if (sourcePath.isAbsolute()) {
-          return sourcePath;
-        } else {
-          return Path.of(baseDir.toString(), sourceDir);
-        }
-      })
-      .map(Absolute::path)
-      .collect(Collectors.toList());
-
-    FilePredicates predicates = fileSystem.predicates();
-    Iterable<InputFile> inputFiles = fileSystem.inputFiles(
-      predicates.hasLanguage(BSLLanguage.KEY)
-    );
-
-    Map<Path, List<InputFile>> inputFilesByPath = StreamSupport.stream(inputFiles.spliterator(), true)
-      .collect(Collectors.groupingBy((InputFile inputFile) -> {
-        var filePath = Absolute.path(inputFile.uri());
-        return absoluteSourceDirs.stream()
-          .filter(filePath::startsWith)
-          .findAny()
-          .orElse(baseDir.toPath());
-      }));
+    Map<Path, List<InputFile>> inputFilesByPath = inputFileIndex.inputFilesBySourceRoot();
 
     LanguageServerConfiguration languageServerConfiguration = getLanguageServerConfiguration();
 
-    inputFilesByPath.forEach((Path sourceDir, List<InputFile> inputFilesList) -> {
-      LOGGER.info("Source dir: {}", sourceDir);
+    try (var resultWriter = new OrderedSink<FileAnalysisResult>(
+      "bsl-core-sensor-writer",
+      RESULT_WRITER_CAPACITY,
+      this::saveResult
+    )) {
+      // results are saved in one order from run to run, since issue limits and deduplication depend on it
+      var firstSequenceNumber = 0;
+      for (Map.Entry<Path, List<InputFile>> entry : inputFilesByPath.entrySet()) {
+        var inputFiles = entry.getValue();
+        processSourceDir(entry.getKey(), inputFiles, languageServerConfiguration, resultWriter, firstSequenceNumber);
+        firstSequenceNumber += inputFiles.size();
+      }
+    }
+
+    issuesLoader.saveAggregatedIssues();
 
-      Path configurationRoot = LanguageServerConfiguration.getCustomConfigurationRoot(
-        languageServerConfiguration,
-        sourceDir
-      );
+    BSLLSBinding.getApplicationContext().close();
+  }
 
-      var bslServerContext = BSLLSBinding.getServerContext();
-      bslServerContext.setConfigurationRoot(configurationRoot);
-      bslServerContext.populateContext();
+  private void processSourceDir(
+    Path sourceDir,
+    List<InputFile> inputFilesList,
+    LanguageServerConfiguration languageServerConfiguration,
+    OrderedSink<FileAnalysisResult> resultWriter,
+    int firstSequenceNumber
+  ) {
+    LOGGER.info("Source dir: {}", sourceDir);
+
+    Path configurationRoot = LanguageServerConfiguration.getCustomConfigurationRoot(
+      languageServerConfiguration,
+      sourceDir
+    );
 
-      try (ProgressBar pb = new ProgressBarBuilder()
-        .setTaskName("")
-        .setInitialMax(inputFilesList.size())
-        .setStyle(ProgressBarStyle.ASCII)
-        .build()) {
-        inputFilesList.parallelStream().forEach((InputFile inputFile) -> {
+    var bslServerContext = BSLLSBinding.getServerContext();
+    bslServerContext.setConfigurationRoot(configurationRoot);
+    bslServerContext.populateContext();
+
+    var filesToProcess = largeFilesFirst(inputFilesList, largeFileMinLines);
+
+    try (ProgressBar pb = new ProgressBarBuilder()
+      .setTaskName("")
+      .setInitialMax(filesToProcess.size())
+      .setStyle(ProgressBarStyle.ASCII)
+      .build();
+         var prefetcher = new FileContentPrefetcher(filesToProcess, PREFETCH_IO_THREADS, PREFETCH_QUEUE_CAPACITY)
+    ) {
+      // files are taken in order of their sequence numbers, so the file the writer waits for
+      // is always being processed and workers ahead of the writer window can't block it
+      runWorkers(() -> {
+        FileContentPrefetcher.PrefetchedFile prefetchedFile;
+        while ((prefetchedFile = prefetcher.take()) != null) {
+          InputFile inputFile = prefetchedFile.getInputFile();
           URI uri = inputFile.uri();
           LOGGER.debug(uri.toString());
           pb.step();
 
-          processFile(inputFile, bslServerContext);
-        });
+          var result = processFile(inputFile, prefetchedFile.getContent(), bslServerContext);
+          resultWriter.accept(firstSequenceNumber + prefetchedFile.getIndex(), result);
+        }
+      });
+    }
+
+    bslServerContext.clear();
+  }
+
+  // workers are plain threads, so a worker waiting for the result writer doesn't hold a thread
+  // of the common pool, which BSL LS uses to compute diagnostics of one file in parallel
+  private static void runWorkers(Runnable worker) {
+    var threadCounter = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(WORKER_THREADS, (Runnable runnable) ->
+      new Thread(runnable, "bsl-core-sensor-worker-" + threadCounter.incrementAndGet())
+    );
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    for (var i = 0; i < WORKER_THREADS; i++) {
+      completionService.submit(worker, null);
+    }
+    executor.shutdown();
+
+    try {
+      for (var i = 0; i < WORKER_THREADS; i++) {
+        completionService.take().get();
+      }
+    } catch (ExecutionException e) {
+      // the sequence number of the failed file is never accepted, so other workers would wait for it
+      executor.shutdownNow();
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
       }
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for sensor workers", e);
+    }
+  }
 
-      bslServerContext.clear();
-    });
+  // BSL LS computes diagnostics of one file in parallel on the common pool. Large files are started first,
+  // so their diagnostics overlap with the analysis of other files instead of being the tail of the scan.
+  static List<InputFile> largeFilesFirst(List<InputFile> inputFiles, int largeFileMinLines) {
+    if (largeFileMinLines <= 0) {
+      return inputFiles;
+    }
 
-    BSLLSBinding.getApplicationContext().close();
+    List<InputFile> largeFiles = new ArrayList<>();
+    List<InputFile> otherFiles = new ArrayList<>(inputFiles.size());
+    for (InputFile inputFile : inputFiles) {
+      if (inputFile.lines() >= largeFileMinLines) {
+        largeFiles.add(inputFile);
+      } else {
+        otherFiles.add(inputFile);
+      }
+    }
+
+    if (largeFiles.isEmpty()) {
+      return inputFiles;
+    }
+
+    largeFiles.sort(Comparator.comparingInt(InputFile::lines).reversed());
+    largeFiles.addAll(otherFiles);
+    return largeFiles;
   }
 
+  private FileAnalysisResult processFile(InputFile inputFile, String content, ServerContext bslServerContext) {
+    if (isLexerOnly(inputFile, bslServerContext)) {
+      return processFileLexerOnly(inputFile, content);
+    }
 
-  private void processFile(InputFile inputFile, ServerContext bslServerContext) {
     URI uri = inputFile.uri();
 
-    String content;
-    try {
-      content = IOUtils.toString(inputFile.inputStream(), StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      LOGGER.warn("Can't read content of file " + uri, e);
-      content = "";
-    }
     DocumentContext documentContext = bslServerContext.addDocument(uri, content, 1);
 
+    List<Diagnostic> diagnostics;
     if (langServerEnabled) {
-      documentContext.getDiagnostics()
-        .forEach(diagnostic -> issuesLoader.createIssue(inputFile, diagnostic));
+      diagnostics = documentContext.getDiagnostics();
+    } else {
+      diagnostics = Collections.emptyList();
     }
 
-    saveCpd(inputFile, documentContext);
-    highlighter.saveHighlighting(inputFile, documentContext);
-    saveMeasures(inputFile, documentContext);
+    // highlighting reads queries and their SDBL tokens already built by query diagnostics,
+    // so it must run after diagnostics and before the document drops its secondary data.
+    // cpd tokens are collected during the same walk over the token list.
+    var cpdTokens = new CpdTokensBuffer(cpdNormalizeTokens);
+    var highlightingData = highlighter.getHighlightingData(documentContext, cpdTokens::add);
+
+    var result = new FileAnalysisResult(
+      inputFile,
+      diagnostics,
+      cpdTokens,
+      highlightingData,
+      documentContext.getMetrics(),
+      null
+    );
 
     documentContext.clearSecondaryData();
+
+    return result;
+  }
+
+  private boolean isLexerOnly(InputFile inputFile, ServerContext bslServerContext) {
+    return (!langServerEnabled && lexerOnlyWithoutDiagnostics)
+      || (lexerOnlyMinLines > 0 && inputFile.lines() >= lexerOnlyMinLines)
+      || (lexerOnlySupportLocked && isSupportLocked(inputFile, bslServerContext));
+  }
+
+  // support settings come from the configuration metadata, so the module itself is not read
+  boolean isSupportLocked(InputFile inputFile, ServerContext bslServerContext) {
+    return bslServerContext.getConfiguration()
+      .getModuleSupport(inputFile.uri())
+      .containsValue(SupportVariant.NOT_EDITABLE);
   }
 
+  // the file is not parsed and not added to the server context: cpd tokens, highlighting
+  // and line metrics are collected in one walk over the lexer tokens
+  private FileAnalysisResult processFileLexerOnly(InputFile inputFile, String content) {
+    TokenSource tokenSource;
+    if (lexerOnlyFastEngine) {
+      tokenSource = new FastBSLLexer(content);
+    } else {
+      tokenSource = new ListTokenSource(new BSLTokenizer(content).getTokens());
+    }
 
-  private void saveCpd(InputFile inputFile, DocumentContext documentContext) {
+    var cpdTokens = new CpdTokensBuffer(cpdNormalizeTokens);
+    var lineMetrics = new TokenLineMetrics();
+    Consumer<Token> tokenConsumer = cpdTokens::add;
+    var highlightingData = highlighter.getHighlightingData(
+      tokenSource,
+      null,
+      tokenConsumer.andThen(lineMetrics::add)
+    );
+
+    return new FileAnalysisResult(
+      inputFile,
+      Collections.emptyList(),
+      cpdTokens,
+      highlightingData,
+      null,
+      lineMetrics
+    );
+  }
+
+  // called only from the single writer thread
+  private void saveResult(FileAnalysisResult result) {
+    var inputFile = result.getInputFile();
+
+    result.getDiagnostics().forEach(diagnostic -> issuesLoader.createIssue(inputFile, diagnostic));
+    issuesLoader.releaseFiles();
+
+    saveCpd(inputFile, result.getCpdTokens());
+    highlighter.saveHighlighting(inputFile, result.getHighlightingData());
+    var metrics = result.getMetrics();
+    var lineMetrics = result.getLineMetrics();
+    if (metrics != null) {
+      saveMeasures(inputFile, metrics);
+    } else if (lineMetrics != null) {
+      saveLineMeasures(inputFile, lineMetrics);
+    }
+  }
+
+  private void saveCpd(InputFile inputFile, CpdTokensBuffer tokens) {
+    // small files rarely contain duplicated blocks worth reporting
+    if (tokens.size() < cpdMinimumFileTokens) {
+      return;
+    }
 
     NewCpdTokens cpdTokens = context.newCpdTokens();
     cpdTokens.onFile(inputFile);
 
-    documentContext.getTokensFromDefaultChannel()
-      .forEach((Token token) -> {
-          int line = token.getLine();
-          int charPositionInLine = token.getCharPositionInLine();
-          String tokenText = token.getText();
-          cpdTokens.addToken(
-            line,
-            charPositionInLine,
-            line,
-            charPositionInLine + tokenText.length(),
-            tokenText
-          );
-        }
+    for (var index = 0; index < tokens.size(); index++) {
+      int line = tokens.getLine(index);
+      cpdTokens.addToken(
+        line,
+        tokens.getStartCharacter(index),
+        line,
+        tokens.getEndCharacter(index),
+        tokens.getImage(index)
       );
-
-    synchronized (this) {
-      cpdTokens.save();
     }
 
-  }
+    cpdTokens.save();
 
-  private void saveMeasures(InputFile inputFile, DocumentContext documentContext) {
+  }
 
-    MetricStorage metrics = documentContext.getMetrics();
+  private void saveMeasures(InputFile inputFile, MetricStorage metrics) {
 
     context.<Integer>newMeasure().on(inputFile)
       .forMetric(CoreMetrics.NCLOC)
@@ -263,12 +427,33 @@ public class BSLCoreSensor implements Sensor {
       .withValue(metrics.getComments())
       .save();
 
+    saveNclocData(inputFile, metrics.getNclocData());
+
+  }
+
+  private void saveLineMeasures(InputFile inputFile, TokenLineMetrics lineMetrics) {
+
+    context.<Integer>newMeasure().on(inputFile)
+      .forMetric(CoreMetrics.NCLOC)
+      .withValue(lineMetrics.getNcloc())
+      .save();
+
+    context.<Integer>newMeasure()
+      .on(inputFile)
+      .forMetric(CoreMetrics.COMMENT_LINES)
+      .withValue(lineMetrics.getComments())
+      .save();
+
+    saveNclocData(inputFile, lineMetrics.getNclocData());
+
+  }
+
+  private void saveNclocData(InputFile inputFile, int[] nclocData) {
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    for (int line : metrics.getNclocData()) {
+    for (int line : nclocData) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
     }
     fileLinesContext.save();
-
   }
 
   private LanguageServerConfiguration getLanguageServerConfiguration() {
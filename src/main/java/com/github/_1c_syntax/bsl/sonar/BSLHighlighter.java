@@ -22,254 +22,239 @@
 package com.github._1c_syntax.bsl.sonar;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
-import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
 import com.github._1c_syntax.bsl.parser.SDBLLexer;
-import com.github._1c_syntax.bsl.parser.Tokenizer;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
+import com.github._1c_syntax.bsl.parser.SDBLTokenizer;
 import lombok.RequiredArgsConstructor;
+import org.antlr.v4.runtime.ListTokenSource;
 import org.antlr.v4.runtime.Token;
-import org.eclipse.lsp4j.Position;
-import org.eclipse.lsp4j.Range;
+import org.antlr.v4.runtime.TokenSource;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 
 import javax.annotation.Nullable;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-@RequiredArgsConstructor
 public class BSLHighlighter {
 
-  private static final Set<Integer> BSL_KEYWORDS = createBslKeywords();
-  private static final Set<Integer> BSL_SEPARATORS = createBslSeparators();
-  private static final Set<Integer> BSL_LITERALS = createBslLiterals();
-  private static final Set<Integer> BSL_STRINGS = createBslStrings();
-  private static final Set<Integer> BSL_COMMENTS = createBslComments();
-  private static final Set<Integer> BSL_PREPROCESSOR = createBslPreprocessor();
-  private static final Set<Integer> BSL_ANNOTATIONS = createBslAnnotations();
-
-  private static final Set<Integer> SDBL_KEYWORDS = createSdblKeywords();
-  private static final Set<Integer> SDBL_FUNCTIONS = createSdblFunctions();
-  private static final Set<Integer> SDBL_METADATA_TYPES = createSdblMetadataTypes();
-  private static final Set<Integer> SDBL_VIRTUAL_TABLES = createSdblVirtualTables();
-  private static final Set<Integer> SDBL_LITERALS = createSdblLiterals();
-  private static final Set<Integer> SDBL_SEPARATORS = createSdblSeparators();
-  private static final Set<Integer> SDBL_STRINGS = createSdblStrings();
-  private static final Set<Integer> SDBL_COMMENTS = createSdblComments();
-  private static final Set<Integer> SDBL_PARAMETERS = createSdblParameters();
+  private static final TypeOfText[] BSL_TYPES_OF_TEXT = createBslTypesOfText();
+  private static final TypeOfText[] SDBL_TYPES_OF_TEXT = createSdblTypesOfText();
+  // words a query text starts with; a string without them can't be a query
+  private static final String[] QUERY_MARKERS = {"ВЫБРАТЬ", "SELECT", "УНИЧТОЖИТЬ", "DROP"};
 
   private final SensorContext context;
+  // adjacent and whitespace separated ranges of the same type are saved as one range
+  private final boolean compactRanges;
+  // buffers are reused by every analysis thread for the next file
+  private final ThreadLocal<HighlightingBuffer> highlightingBuffer = ThreadLocal.withInitial(HighlightingBuffer::new);
+  private final ThreadLocal<HighlightingBuffer> queryHighlightingBuffer =
+    ThreadLocal.withInitial(HighlightingBuffer::new);
+
+  public BSLHighlighter(SensorContext context) {
+    this(context, true);
+  }
+
+  BSLHighlighter(SensorContext context, boolean compactRanges) {
+    this.context = context;
+    this.compactRanges = compactRanges;
+  }
 
   public void saveHighlighting(InputFile inputFile, DocumentContext documentContext) {
-    Set<HighlightingData> highlightingData = new HashSet<>(documentContext.getTokens().size());
+    saveHighlighting(inputFile, getHighlightingData(documentContext));
+  }
 
-    // populate bsl highlight data
-    documentContext.getTokens().forEach(token ->
-      highlightToken(token, highlightingData, getTypeOfTextBSL(token.getType()))
-    );
+  void saveHighlighting(InputFile inputFile, HighlightingBuffer highlightingData) {
+    if (highlightingData.isEmpty()) {
+      return;
+    }
+
+    NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
 
-    // compute and populate sdbl highlight data
-    Map<Integer, List<Token>> queryTokens = documentContext.getQueries().stream()
-      .map(Tokenizer::getTokens)
-      .flatMap(Collection::stream)
-      .collect(Collectors.groupingBy(Token::getLine));
-    Map<Integer, Set<HighlightingData>> highlightingDataSDBL = new HashMap<>(queryTokens.size());
-
-    queryTokens.values().stream()
-      .flatMap(Collection::stream)
-      .forEach(token -> highlightToken(
-        token,
-        highlightingDataSDBL.computeIfAbsent(token.getLine(), BSLHighlighter::newHashSet),
-        getTypeOfTextSDBL(token.getType()))
+    for (var index = 0; index < highlightingData.size(); index++) {
+      highlighting.highlight(
+        highlightingData.getStartLine(index),
+        highlightingData.getStartCharacter(index),
+        highlightingData.getEndLine(index),
+        highlightingData.getEndCharacter(index),
+        highlightingData.getType(index)
       );
+    }
 
-    // find bsl strings to check overlap with sdbl tokens
-    Set<HighlightingData> strings = highlightingData.stream()
-      .filter(data -> data.getType() == TypeOfText.STRING)
-      .collect(Collectors.toSet());
+    highlighting.save();
+  }
 
-    strings.forEach((HighlightingData string) -> {
-      Range stringRange = string.getRange();
+  // computes highlighting without touching sensor context, so it can be called from any thread
+  HighlightingBuffer getHighlightingData(DocumentContext documentContext) {
+    return getHighlightingData(documentContext, (Token token) -> {
+    });
+  }
 
-      // find overlapping tokens
-      Set<HighlightingData> dataOfCurrentLine = highlightingDataSDBL.get(stringRange.getStart().getLine());
-      if (Objects.isNull(dataOfCurrentLine)) {
-        return;
-      }
+  // tokenConsumer gets every bsl token during the same walk, so other token based data
+  // is collected without another pass over the token list
+  HighlightingBuffer getHighlightingData(DocumentContext documentContext, Consumer<Token> tokenConsumer) {
+    var tokens = documentContext.getTokens();
+    // most modules have no queries, cheap prescan of strings saves query extraction for them
+    Supplier<List<SDBLTokenizer>> queries = hasQueryMarkers(tokens) ? documentContext::getQueries : null;
+    return getHighlightingData(new ListTokenSource(tokens), queries, tokenConsumer);
+  }
 
-      List<HighlightingData> currentTokens = dataOfCurrentLine.stream()
-        .filter(sdblData -> Ranges.containsRange(stringRange, sdblData.getRange()))
-        .sorted(Comparator.comparing(data -> data.getRange().getStart().getCharacter()))
-        .collect(Collectors.toList());
+  // queries is null when embedded queries are not highlighted, e.g. for files analyzed only by the lexer.
+  // tokens are read up to EOF and may be reused by the token source, so they are not kept.
+  HighlightingBuffer getHighlightingData(
+    TokenSource tokenSource,
+    @Nullable Supplier<List<SDBLTokenizer>> queries,
+    Consumer<Token> tokenConsumer
+  ) {
+    // compute sdbl highlight data
+    var queryHighlightingData = queryHighlightingBuffer.get();
+    queryHighlightingData.clear();
+    if (queries != null) {
+      queries.get().forEach(query ->
+        query.getTokens().forEach(token ->
+          highlightToken(token, queryHighlightingData, getTypeOfTextSDBL(token.getType()))
+        )
+      );
+      queryHighlightingData.sortByStart();
+    }
 
-      if (currentTokens.isEmpty()) {
-        return;
+    // merge bsl tokens with sdbl tokens in one pass, bsl strings are split to parts excluding sdbl tokens
+    var highlightingData = highlightingBuffer.get();
+    highlightingData.clear();
+    var merger = new QueryTokensMerger(highlightingData, queryHighlightingData, compactRanges);
+    for (var token = tokenSource.nextToken(); token.getType() != Token.EOF; token = tokenSource.nextToken()) {
+      tokenConsumer.accept(token);
+      var typeOfText = getTypeOfTextBSL(token.getType());
+      if (typeOfText == TypeOfText.STRING) {
+        merger.addString(token);
+      } else if (typeOfText != null) {
+        merger.addToken(token, typeOfText);
+      } else {
+        merger.skipToken(token);
       }
+    }
+    merger.addRemainingQueryTokens();
 
-      // disable current bsl token
-      string.setActive(false);
-
-      // split current bsl token to parts excluding sdbl tokens
-      Position start = stringRange.getStart();
-      int line = start.getLine();
-      int startChar;
-      int endChar = start.getCharacter();
-      for (HighlightingData currentToken : currentTokens) {
-        startChar = endChar;
-        endChar = currentToken.getRange().getStart().getCharacter();
-        TypeOfText typeOfText = string.getType();
-
-        if (startChar < endChar) {
-          // add string part
-          highlightingData.add(new HighlightingData(
-            line,
-            startChar,
-            endChar,
-            typeOfText
-          ));
-        }
+    return highlightingData.copy();
+  }
 
-        endChar = currentToken.getRange().getEnd().getCharacter();
+  static boolean hasQueryMarkers(List<Token> tokens) {
+    for (Token token : tokens) {
+      if (getTypeOfTextBSL(token.getType()) == TypeOfText.STRING && hasQueryMarkers(token.getText())) {
+        return true;
       }
+    }
+    return false;
+  }
 
-      // add final string part
-      startChar = endChar;
-      endChar = string.getRange().getEnd().getCharacter();
-      TypeOfText typeOfText = string.getType();
-
-      if (startChar < endChar) {
-        highlightingData.add(new HighlightingData(
-          line,
-          startChar,
-          endChar,
-          typeOfText
-        ));
+  private static boolean hasQueryMarkers(String text) {
+    var length = text.length();
+    for (var index = 0; index < length; index++) {
+      var character = Character.toUpperCase(text.charAt(index));
+      if (character != 'В' && character != 'S' && character != 'У' && character != 'D') {
+        continue;
+      }
+      for (String marker : QUERY_MARKERS) {
+        if (text.regionMatches(true, index, marker, 0, marker.length())) {
+          return true;
+        }
       }
-    });
-
-    // merge collected bsl tokens with sdbl tokens
-    highlightingDataSDBL.values().forEach(highlightingData::addAll);
-
-    if (highlightingData.stream()
-      .filter(HighlightingData::isActive)
-      .findAny()
-      .isEmpty()) {
-      return;
     }
-
-    // save only active tokens
-    NewHighlighting highlighting = context.newHighlighting().onFile(inputFile);
-
-    highlightingData.stream()
-      .filter(HighlightingData::isActive)
-      .forEach(data ->
-        highlighting.highlight(
-          data.getRange().getStart().getLine(),
-          data.getRange().getStart().getCharacter(),
-          data.getRange().getEnd().getLine(),
-          data.getRange().getEnd().getCharacter(),
-          data.getType()
-        )
-      );
-
-    highlighting.save();
+    return false;
   }
 
-  public void highlightToken(
+  private static void highlightToken(
     Token token,
-    Collection<HighlightingData> highlightingData,
+    HighlightingBuffer highlightingData,
     @Nullable TypeOfText typeOfText
   ) {
     if (typeOfText == null) {
       return;
     }
 
-    int line = token.getLine();
-    int charPositionInLine = token.getCharPositionInLine();
-    String tokenText = token.getText();
-
-    Range range = Ranges.create(
-      line,
-      charPositionInLine,
-      line,
-      charPositionInLine + tokenText.length()
-    );
-
-    HighlightingData data = new HighlightingData(
-      range,
+    highlightingData.add(
+      token.getLine(),
+      token.getCharPositionInLine(),
+      getEndLine(token),
+      getEndCharacter(token),
       typeOfText
     );
+  }
 
-    highlightingData.add(data);
+  // tokens of multi-line strings and queries may contain line breaks
+  private static int getEndLine(Token token) {
+    var text = token.getText();
+    var line = token.getLine();
+    for (var index = text.indexOf('\n'); index >= 0; index = text.indexOf('\n', index + 1)) {
+      line++;
+    }
+    return line;
   }
 
-  @Nullable
-  private static TypeOfText getTypeOfTextBSL(int tokenType) {
-    TypeOfText typeOfText;
-
-    if (BSL_KEYWORDS.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD;
-    } else if (BSL_SEPARATORS.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD_LIGHT;
-    } else if (BSL_LITERALS.contains(tokenType)) {
-      typeOfText = TypeOfText.CONSTANT;
-    } else if (BSL_STRINGS.contains(tokenType)) {
-      typeOfText = TypeOfText.STRING;
-    } else if (BSL_COMMENTS.contains(tokenType)) {
-      typeOfText = TypeOfText.COMMENT;
-    } else if (BSL_PREPROCESSOR.contains(tokenType)) {
-      typeOfText = TypeOfText.PREPROCESS_DIRECTIVE;
-    } else if (BSL_ANNOTATIONS.contains(tokenType)) {
-      typeOfText = TypeOfText.ANNOTATION;
-    } else {
-      typeOfText = null;
+  private static int getEndCharacter(Token token) {
+    var text = token.getText();
+    var lastLineBreak = text.lastIndexOf('\n');
+    if (lastLineBreak < 0) {
+      return token.getCharPositionInLine() + text.length();
     }
+    return text.length() - lastLineBreak - 1;
+  }
 
-    return typeOfText;
+  @Nullable
+  static TypeOfText getTypeOfTextBSL(int tokenType) {
+    return getTypeOfText(BSL_TYPES_OF_TEXT, tokenType);
   }
 
   @Nullable
   private static TypeOfText getTypeOfTextSDBL(int tokenType) {
-    TypeOfText typeOfText;
-
-    if (SDBL_KEYWORDS.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD;
-    } else if (SDBL_FUNCTIONS.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD_LIGHT;
-    } else if (SDBL_METADATA_TYPES.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD_LIGHT;
-    } else if (SDBL_VIRTUAL_TABLES.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD_LIGHT;
-    } else if (SDBL_LITERALS.contains(tokenType)) {
-      typeOfText = TypeOfText.CONSTANT;
-    } else if (SDBL_SEPARATORS.contains(tokenType)) {
-      typeOfText = TypeOfText.KEYWORD_LIGHT;
-    } else if (SDBL_STRINGS.contains(tokenType)) {
-      typeOfText = TypeOfText.STRING;
-    } else if (SDBL_COMMENTS.contains(tokenType)) {
-      typeOfText = TypeOfText.COMMENT;
-    } else if (SDBL_PARAMETERS.contains(tokenType)) {
-      typeOfText = TypeOfText.ANNOTATION;
-    } else {
-      typeOfText = null;
+    return getTypeOfText(SDBL_TYPES_OF_TEXT, tokenType);
+  }
+
+  @Nullable
+  private static TypeOfText getTypeOfText(TypeOfText[] typesOfText, int tokenType) {
+    if (tokenType < 0 || tokenType >= typesOfText.length) {
+      return null;
     }
+    return typesOfText[tokenType];
+  }
+
+  // lookup tables by token type; a token type from several groups gets the type of the first group
+  private static TypeOfText[] createBslTypesOfText() {
+    var typesOfText = new TypeOfText[BSLLexer.VOCABULARY.getMaxTokenType() + 1];
+    fillTypesOfText(typesOfText, createBslKeywords(), TypeOfText.KEYWORD);
+    fillTypesOfText(typesOfText, createBslSeparators(), TypeOfText.KEYWORD_LIGHT);
+    fillTypesOfText(typesOfText, createBslLiterals(), TypeOfText.CONSTANT);
+    fillTypesOfText(typesOfText, createBslStrings(), TypeOfText.STRING);
+    fillTypesOfText(typesOfText, createBslComments(), TypeOfText.COMMENT);
+    fillTypesOfText(typesOfText, createBslPreprocessor(), TypeOfText.PREPROCESS_DIRECTIVE);
+    fillTypesOfText(typesOfText, createBslAnnotations(), TypeOfText.ANNOTATION);
+    return typesOfText;
+  }
 
-    return typeOfText;
+  private static TypeOfText[] createSdblTypesOfText() {
+    var typesOfText = new TypeOfText[SDBLLexer.VOCABULARY.getMaxTokenType() + 1];
+    fillTypesOfText(typesOfText, createSdblKeywords(), TypeOfText.KEYWORD);
+    fillTypesOfText(typesOfText, createSdblFunctions(), TypeOfText.KEYWORD_LIGHT);
+    fillTypesOfText(typesOfText, createSdblMetadataTypes(), TypeOfText.KEYWORD_LIGHT);
+    fillTypesOfText(typesOfText, createSdblVirtualTables(), TypeOfText.KEYWORD_LIGHT);
+    fillTypesOfText(typesOfText, createSdblLiterals(), TypeOfText.CONSTANT);
+    fillTypesOfText(typesOfText, createSdblSeparators(), TypeOfText.KEYWORD_LIGHT);
+    fillTypesOfText(typesOfText, createSdblStrings(), TypeOfText.STRING);
+    fillTypesOfText(typesOfText, createSdblComments(), TypeOfText.COMMENT);
+    fillTypesOfText(typesOfText, createSdblParameters(), TypeOfText.ANNOTATION);
+    return typesOfText;
   }
 
-  private static Set<HighlightingData> newHashSet(Integer line) {
-    return new HashSet<>();
+  private static void fillTypesOfText(TypeOfText[] typesOfText, Set<Integer> tokenTypes, TypeOfText typeOfText) {
+    tokenTypes.forEach((Integer tokenType) -> {
+      if (typesOfText[tokenType] == null) {
+        typesOfText[tokenType] = typeOfText;
+      }
+    });
   }
 
   private static Set<Integer> createBslAnnotations() {
@@ -611,16 +596,131 @@ public class BSLHighlighter {
     );
   }
 
-  @Data
+  // Sweep over bsl tokens and sorted sdbl tokens at once. Sdbl tokens inside of a bsl string split it to parts,
+  // a sdbl token spanning several bsl strings of a multi-line query cuts the covered parts off these strings.
+  // Ranges of the same type are merged if only whitespace tokens are skipped between them.
   @RequiredArgsConstructor
-  @EqualsAndHashCode(exclude = "active")
-  private static class HighlightingData {
-    private final Range range;
-    private final TypeOfText type;
-    private boolean active = true;
-
-    public HighlightingData(int line, int startChar, int endChar, TypeOfText type) {
-      this(Ranges.create(line, startChar, endChar), type);
+  private static class QueryTokensMerger {
+    private final HighlightingBuffer highlightingData;
+    private final HighlightingBuffer queryHighlightingData;
+    private final boolean compactRanges;
+    private int queryIndex;
+    private int coveredLine;
+    private int coveredCharacter;
+    private boolean whitespaceBefore;
+
+    void addToken(Token token, TypeOfText typeOfText) {
+      addQueryTokensBefore(token.getLine(), token.getCharPositionInLine());
+      add(
+        token.getLine(),
+        token.getCharPositionInLine(),
+        getEndLine(token),
+        getEndCharacter(token),
+        typeOfText,
+        whitespaceBefore
+      );
+    }
+
+    void skipToken(Token token) {
+      if (token.getType() != BSLLexer.WHITE_SPACE) {
+        whitespaceBefore = false;
+      }
+    }
+
+    void addString(Token token) {
+      var startLine = token.getLine();
+      var startCharacter = token.getCharPositionInLine();
+      var endLine = getEndLine(token);
+      var endCharacter = getEndCharacter(token);
+
+      addQueryTokensBefore(startLine, startCharacter);
+
+      // skip the part of the string covered by the previous sdbl token
+      var gapBefore = whitespaceBefore;
+      if (HighlightingBuffer.compare(startLine, startCharacter, coveredLine, coveredCharacter) < 0) {
+        startLine = coveredLine;
+        startCharacter = coveredCharacter;
+        gapBefore = false;
+      }
+
+      while (hasQueryTokenBefore(endLine, endCharacter)) {
+        var queryStartLine = queryHighlightingData.getStartLine(queryIndex);
+        var queryStartCharacter = queryHighlightingData.getStartCharacter(queryIndex);
+        if (HighlightingBuffer.compare(startLine, startCharacter, queryStartLine, queryStartCharacter) < 0) {
+          // add string part
+          add(startLine, startCharacter, queryStartLine, queryStartCharacter, TypeOfText.STRING, gapBefore);
+        }
+
+        addQueryToken();
+        gapBefore = false;
+        if (HighlightingBuffer.compare(startLine, startCharacter, coveredLine, coveredCharacter) < 0) {
+          startLine = coveredLine;
+          startCharacter = coveredCharacter;
+        }
+      }
+
+      // add final string part
+      if (HighlightingBuffer.compare(startLine, startCharacter, endLine, endCharacter) < 0) {
+        add(startLine, startCharacter, endLine, endCharacter, TypeOfText.STRING, gapBefore);
+      }
+    }
+
+    void addRemainingQueryTokens() {
+      while (queryIndex < queryHighlightingData.size()) {
+        addQueryToken();
+      }
+    }
+
+    private void addQueryTokensBefore(int line, int character) {
+      while (hasQueryTokenBefore(line, character)) {
+        addQueryToken();
+      }
+    }
+
+    private boolean hasQueryTokenBefore(int line, int character) {
+      if (queryIndex >= queryHighlightingData.size()) {
+        return false;
+      }
+
+      var queryStartLine = queryHighlightingData.getStartLine(queryIndex);
+      var queryStartCharacter = queryHighlightingData.getStartCharacter(queryIndex);
+      return HighlightingBuffer.compare(queryStartLine, queryStartCharacter, line, character) < 0;
+    }
+
+    private void addQueryToken() {
+      var endLine = queryHighlightingData.getEndLine(queryIndex);
+      var endCharacter = queryHighlightingData.getEndCharacter(queryIndex);
+      // gaps between query tokens are not tracked, so only directly adjacent query ranges are merged
+      add(
+        queryHighlightingData.getStartLine(queryIndex),
+        queryHighlightingData.getStartCharacter(queryIndex),
+        endLine,
+        endCharacter,
+        queryHighlightingData.getType(queryIndex),
+        false
+      );
+
+      if (HighlightingBuffer.compare(coveredLine, coveredCharacter, endLine, endCharacter) < 0) {
+        coveredLine = endLine;
+        coveredCharacter = endCharacter;
+      }
+      queryIndex++;
+    }
+
+    private void add(
+      int startLine,
+      int startCharacter,
+      int endLine,
+      int endCharacter,
+      TypeOfText typeOfText,
+      boolean whitespaceGap
+    ) {
+      if (compactRanges) {
+        highlightingData.append(startLine, startCharacter, endLine, endCharacter, typeOfText, whitespaceGap);
+      } else {
+        highlightingData.add(startLine, startCharacter, endLine, endCharacter, typeOfText);
+      }
+      whitespaceBefore = true;
     }
   }
 }
@@ -42,6 +42,8 @@ public class BSLPlugin implements Plugin {
     context.addExtension(ACCQualityProfile.class);
     context.addExtension(ACCRuleDefinition.class);
 
+    context.addExtension(IssueBudget.class);
+    context.addExtension(IssueDeduplicator.class);
     context.addExtension(BSLCoreSensor.class);
     context.addExtension(LanguageServerDiagnosticsLoaderSensor.class);
   }
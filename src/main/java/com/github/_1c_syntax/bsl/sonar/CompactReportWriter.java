@@ -0,0 +1,195 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.Range;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+// Writer of compact analysis reports. Every line is a json array (record):
+//   ["bsl-ls-compact", 1]                                          header
+//   ["s", "text"]                                                  string table entry, ids are assigned in order from 0
+//   ["f", pathId]                                                  start of diagnostics of the file
+//   ["d", codeId, sourceId, severity, messageId, sl, sc, el, ec]   diagnostic of the current file
+//   ["r", uriId, messageId, sl, sc, el, ec]                        related information of the previous diagnostic
+//   ["e"]                                                          end of report
+// Absent strings are written as -1, absent severity as 0.
+// The end record lets a reader tail the report while it is still being written.
+// The same encoding is used by the report import cache. A json report of BSL LS is converted with
+//   java -cp <plugin jar> com.github._1c_syntax.bsl.sonar.CompactReportWriter <json report> <compact report>
+// and the compact report is gzip-compressed if its name ends with .gz.
+public class CompactReportWriter implements Closeable, Flushable {
+
+  public static final String FORMAT = "bsl-ls-compact";
+  public static final int VERSION = 1;
+
+  static final String STRING_RECORD = "s";
+  static final String FILE_RECORD = "f";
+  static final String DIAGNOSTIC_RECORD = "d";
+  static final String RELATED_INFORMATION_RECORD = "r";
+  static final String END_RECORD = "e";
+
+  private final JsonGenerator generator;
+  private final Map<String, Integer> strings = new HashMap<>();
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: CompactReportWriter <json report> <compact report>");
+    }
+    convert(new File(args[0]), Path.of(args[1]));
+  }
+
+  public static void convert(File reportFile, Path compactReportFile) throws IOException {
+    OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(compactReportFile));
+    if (compactReportFile.getFileName().toString().endsWith(".gz")) {
+      outputStream = new GZIPOutputStream(outputStream);
+    }
+
+    try (var writer = new CompactReportWriter(outputStream)) {
+      new AnalysisReportReader().read(reportFile, (AnalysisReportEntry entry) -> {
+        try {
+          writer.write(entry.getPath(), entry.getDiagnostics());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  public CompactReportWriter(OutputStream outputStream) throws IOException {
+    generator = new JsonFactory().createGenerator(outputStream);
+    generator.setRootValueSeparator(new SerializedString("\n"));
+
+    generator.writeStartArray();
+    generator.writeString(FORMAT);
+    generator.writeNumber(VERSION);
+    generator.writeEndArray();
+  }
+
+  public void write(Path path, List<Diagnostic> diagnostics) throws IOException {
+    var pathId = stringId(path.toString());
+    generator.writeStartArray();
+    generator.writeString(FILE_RECORD);
+    generator.writeNumber(pathId);
+    generator.writeEndArray();
+
+    for (Diagnostic diagnostic : diagnostics) {
+      writeDiagnostic(diagnostic);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    generator.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.writeStartArray();
+    generator.writeString(END_RECORD);
+    generator.writeEndArray();
+    generator.writeRaw('\n');
+    generator.close();
+  }
+
+  private void writeDiagnostic(Diagnostic diagnostic) throws IOException {
+    var codeId = stringId(DiagnosticCode.getStringValue(diagnostic.getCode()));
+    var sourceId = stringId(diagnostic.getSource());
+    var messageId = stringId(diagnostic.getMessage());
+    var severity = diagnostic.getSeverity() == null ? 0 : diagnostic.getSeverity().getValue();
+
+    generator.writeStartArray();
+    generator.writeString(DIAGNOSTIC_RECORD);
+    generator.writeNumber(codeId);
+    generator.writeNumber(sourceId);
+    generator.writeNumber(severity);
+    generator.writeNumber(messageId);
+    writeRange(diagnostic.getRange());
+    generator.writeEndArray();
+
+    List<DiagnosticRelatedInformation> relatedInformation = diagnostic.getRelatedInformation();
+    if (relatedInformation == null) {
+      return;
+    }
+
+    for (DiagnosticRelatedInformation relatedInformationEntry : relatedInformation) {
+      var location = relatedInformationEntry.getLocation();
+      var uriId = stringId(location.getUri());
+      var relatedMessageId = stringId(relatedInformationEntry.getMessage());
+
+      generator.writeStartArray();
+      generator.writeString(RELATED_INFORMATION_RECORD);
+      generator.writeNumber(uriId);
+      generator.writeNumber(relatedMessageId);
+      writeRange(location.getRange());
+      generator.writeEndArray();
+    }
+  }
+
+  private void writeRange(Range range) throws IOException {
+    generator.writeNumber(range.getStart().getLine());
+    generator.writeNumber(range.getStart().getCharacter());
+    generator.writeNumber(range.getEnd().getLine());
+    generator.writeNumber(range.getEnd().getCharacter());
+  }
+
+  // string table entries are written right before the first record using them
+  private int stringId(@Nullable String value) throws IOException {
+    if (value == null) {
+      return -1;
+    }
+
+    var id = strings.get(value);
+    if (id == null) {
+      id = strings.size();
+      strings.put(value, id);
+
+      generator.writeStartArray();
+      generator.writeString(STRING_RECORD);
+      generator.writeString(value);
+      generator.writeEndArray();
+    }
+    return id;
+  }
+
+}
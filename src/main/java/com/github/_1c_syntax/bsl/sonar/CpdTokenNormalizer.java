@@ -0,0 +1,83 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+
+import javax.annotation.Nullable;
+
+// Normalized cpd images: literal values are replaced with placeholders, so blocks which differ only
+// in constants are found as duplicates, and keywords with their token names, so ЕСЛИ, Если and If are equal.
+final class CpdTokenNormalizer {
+
+  private static final String STRING_PLACEHOLDER = "$STRING";
+  private static final String NUMBER_PLACEHOLDER = "$NUMBER";
+  private static final String DATE_PLACEHOLDER = "$DATE";
+  private static final String KEYWORD_SUFFIX = "_KEYWORD";
+
+  // lookup table by token type, null keeps the token text
+  private static final String[] IMAGES = createImages();
+
+  private CpdTokenNormalizer() {
+    // only statics
+  }
+
+  static String getImage(int tokenType, String text) {
+    var image = getNormalizedImage(tokenType);
+    return image == null ? text : image;
+  }
+
+  @Nullable
+  private static String getNormalizedImage(int tokenType) {
+    if (tokenType < 0 || tokenType >= IMAGES.length) {
+      return null;
+    }
+    return IMAGES[tokenType];
+  }
+
+  private static String[] createImages() {
+    var vocabulary = BSLLexer.VOCABULARY;
+    var images = new String[vocabulary.getMaxTokenType() + 1];
+
+    for (var tokenType = 0; tokenType < images.length; tokenType++) {
+      var symbolicName = vocabulary.getSymbolicName(tokenType);
+      if (symbolicName != null && symbolicName.endsWith(KEYWORD_SUFFIX)) {
+        images[tokenType] = symbolicName;
+      }
+    }
+
+    images[BSLLexer.TRUE] = vocabulary.getSymbolicName(BSLLexer.TRUE);
+    images[BSLLexer.FALSE] = vocabulary.getSymbolicName(BSLLexer.FALSE);
+    images[BSLLexer.UNDEFINED] = vocabulary.getSymbolicName(BSLLexer.UNDEFINED);
+    images[BSLLexer.NULL] = vocabulary.getSymbolicName(BSLLexer.NULL);
+
+    images[BSLLexer.STRING] = STRING_PLACEHOLDER;
+    images[BSLLexer.STRINGSTART] = STRING_PLACEHOLDER;
+    images[BSLLexer.STRINGPART] = STRING_PLACEHOLDER;
+    images[BSLLexer.STRINGTAIL] = STRING_PLACEHOLDER;
+    images[BSLLexer.DECIMAL] = NUMBER_PLACEHOLDER;
+    images[BSLLexer.FLOAT] = NUMBER_PLACEHOLDER;
+    images[BSLLexer.DATETIME] = DATE_PLACEHOLDER;
+
+    return images;
+  }
+}
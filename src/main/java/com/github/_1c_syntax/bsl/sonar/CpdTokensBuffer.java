@@ -0,0 +1,100 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+// CPD tokens packed into arrays: line, start character and end character per token plus its image,
+// so the result of the token walk doesn't keep the token objects alive until it is saved.
+class CpdTokensBuffer {
+
+  private static final int ENTRY_LENGTH = 3;
+  private static final int DEFAULT_CAPACITY = 256;
+
+  private final boolean normalizeTokens;
+  private int[] positions;
+  private String[] images;
+  private int size;
+
+  CpdTokensBuffer() {
+    this(false);
+  }
+
+  CpdTokensBuffer(boolean normalizeTokens) {
+    this(DEFAULT_CAPACITY, normalizeTokens);
+  }
+
+  CpdTokensBuffer(int capacity, boolean normalizeTokens) {
+    this.normalizeTokens = normalizeTokens;
+    var initialCapacity = Math.max(capacity, 1);
+    positions = new int[initialCapacity * ENTRY_LENGTH];
+    images = new String[initialCapacity];
+  }
+
+  // tokens of hidden channels (whitespace, comments) are not used for duplication detection
+  void add(Token token) {
+    if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+      return;
+    }
+
+    var text = token.getText();
+    var image = normalizeTokens ? CpdTokenNormalizer.getImage(token.getType(), text) : text;
+    var startCharacter = token.getCharPositionInLine();
+    add(token.getLine(), startCharacter, startCharacter + text.length(), image);
+  }
+
+  void add(int line, int startCharacter, int endCharacter, String image) {
+    if (size == images.length) {
+      positions = Arrays.copyOf(positions, positions.length * 2);
+      images = Arrays.copyOf(images, images.length * 2);
+    }
+
+    var offset = size * ENTRY_LENGTH;
+    positions[offset] = line;
+    positions[offset + 1] = startCharacter;
+    positions[offset + 2] = endCharacter;
+    images[size] = image;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int getLine(int index) {
+    return positions[index * ENTRY_LENGTH];
+  }
+
+  int getStartCharacter(int index) {
+    return positions[index * ENTRY_LENGTH + 1];
+  }
+
+  int getEndCharacter(int index) {
+    return positions[index * ENTRY_LENGTH + 2];
+  }
+
+  String getImage(int index) {
+    return images[index];
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import java.util.Arrays;
+
+// Open addressing hash set of diagnostic keys (code id and range) stored in one flat int array,
+// five ints per key without any per-key objects. Code ids must be non-negative.
+class DiagnosticKeySet {
+
+  private static final int KEY_LENGTH = 5;
+  private static final int EMPTY = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] keys;
+  private int size;
+
+  DiagnosticKeySet() {
+    keys = newTable(INITIAL_CAPACITY);
+  }
+
+  // returns false if the key is already in the set
+  boolean add(int codeId, int startLine, int startCharacter, int endLine, int endCharacter) {
+    if ((size + 1) * 2 > capacity()) {
+      resize();
+    }
+
+    var mask = capacity() - 1;
+    var slot = hash(codeId, startLine, startCharacter, endLine, endCharacter) & mask;
+    while (true) {
+      var offset = slot * KEY_LENGTH;
+      if (keys[offset] == EMPTY) {
+        keys[offset] = codeId;
+        keys[offset + 1] = startLine;
+        keys[offset + 2] = startCharacter;
+        keys[offset + 3] = endLine;
+        keys[offset + 4] = endCharacter;
+        size++;
+        return true;
+      }
+      if (keys[offset] == codeId
+        && keys[offset + 1] == startLine
+        && keys[offset + 2] == startCharacter
+        && keys[offset + 3] == endLine
+        && keys[offset + 4] == endCharacter) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int capacity() {
+    return keys.length / KEY_LENGTH;
+  }
+
+  private void resize() {
+    var oldKeys = keys;
+    keys = newTable(capacity() * 2);
+    size = 0;
+    for (var offset = 0; offset < oldKeys.length; offset += KEY_LENGTH) {
+      if (oldKeys[offset] != EMPTY) {
+        add(oldKeys[offset], oldKeys[offset + 1], oldKeys[offset + 2], oldKeys[offset + 3], oldKeys[offset + 4]);
+      }
+    }
+  }
+
+  private static int[] newTable(int capacity) {
+    var table = new int[capacity * KEY_LENGTH];
+    Arrays.fill(table, EMPTY);
+    return table;
+  }
+
+  private static int hash(int codeId, int startLine, int startCharacter, int endLine, int endCharacter) {
+    var hash = codeId;
+    hash = 31 * hash + startLine;
+    hash = 31 * hash + startCharacter;
+    hash = 31 * hash + endLine;
+    hash = 31 * hash + endCharacter;
+    return hash ^ (hash >>> 16);
+  }
+
+}
@@ -0,0 +1,664 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Hand-written lexer for the lexer-only analysis: a DFA over a char array driven by character class tables.
+// Tokens get BSLLexer types with the same positions, channels and highlighting categories as BSLLexer gives them,
+// except that annotation words get one type per category instead of one type per word.
+// One token object is reused for all tokens, so a token is valid only until the next call of nextToken.
+class FastBSLLexer implements TokenSource {
+
+  // character classes
+  private static final byte OTHER = 0;
+  private static final byte WHITE_SPACE = 1;
+  private static final byte LETTER = 2;
+  private static final byte DIGIT = 3;
+  private static final byte PUNCTUATION = 4;
+  private static final byte QUOTE = 5;
+  private static final byte APOSTROPHE = 6;
+  private static final byte BAR = 7;
+  private static final byte SLASH = 8;
+  private static final byte LESS = 9;
+  private static final byte GREATER = 10;
+  private static final byte HASH = 11;
+  private static final byte AMPERSAND = 12;
+  private static final byte TILDA = 13;
+  private static final byte DOT = 14;
+
+  private static final byte[] ASCII_CLASSES = createAsciiClasses();
+  // token types of single char tokens by char
+  private static final int[] PUNCTUATION_TYPES = createPunctuationTypes();
+
+  // open addressing table of keywords in lower case; size is a power of two
+  private static final int KEYWORDS_TABLE_SIZE = 256;
+  private static final char[][] KEYWORDS = new char[KEYWORDS_TABLE_SIZE][];
+  private static final int[] KEYWORD_TYPES = new int[KEYWORDS_TABLE_SIZE];
+  // words of preprocessor directives, the same kind of table
+  private static final int PREPROCESSOR_WORDS_TABLE_SIZE = 128;
+  private static final char[][] PREPROCESSOR_WORDS = new char[PREPROCESSOR_WORDS_TABLE_SIZE][];
+  private static final int[] PREPROCESSOR_WORD_TYPES = new int[PREPROCESSOR_WORDS_TABLE_SIZE];
+
+  static {
+    addKeywords();
+    addPreprocessorWords();
+  }
+
+  private final char[] chars;
+  private final int length;
+  private final LexerToken token;
+
+  private int position;
+  private int line = 1;
+  private int column;
+
+  // lexer modes
+  private boolean preprocessor;
+  private boolean regionNameExpected;
+  private boolean deletedBlock;
+  private boolean identifierExpected;
+  private boolean annotationExpected;
+
+  FastBSLLexer(String content) {
+    this(content.toCharArray());
+  }
+
+  FastBSLLexer(char[] chars) {
+    this.chars = chars;
+    length = chars.length;
+    token = new LexerToken(chars);
+  }
+
+  @Override
+  public Token nextToken() {
+    if (position >= length) {
+      return emit(Token.EOF, Token.DEFAULT_CHANNEL, position);
+    }
+    if (deletedBlock) {
+      return nextDeletedToken();
+    }
+
+    var character = chars[position];
+    var characterClass = getCharacterClass(character);
+    if (characterClass == WHITE_SPACE) {
+      return whiteSpace();
+    }
+    if (preprocessor) {
+      return nextPreprocessorToken(character, characterClass);
+    }
+
+    // keywords after a dot or tilda and names after an ampersand are identifiers and annotations
+    var forceIdentifier = identifierExpected;
+    var annotation = annotationExpected;
+    identifierExpected = false;
+    annotationExpected = false;
+
+    switch (characterClass) {
+      case LETTER:
+        return word(forceIdentifier, annotation);
+      case DIGIT:
+        return number();
+      case QUOTE:
+        return string(BSLLexer.STRING, BSLLexer.STRINGSTART);
+      case BAR:
+        return string(BSLLexer.STRINGTAIL, BSLLexer.STRINGPART);
+      case APOSTROPHE:
+        return emit(BSLLexer.DATETIME, Token.DEFAULT_CHANNEL, skipTo(position + 1, '\''));
+      case SLASH:
+        if (charAt(position + 1) == '/') {
+          return comment();
+        }
+        return emit(BSLLexer.QUOTIENT, Token.DEFAULT_CHANNEL, position + 1);
+      case LESS:
+        return lessOrGreater(BSLLexer.LESS, BSLLexer.LESS_OR_EQUAL, BSLLexer.NOT_EQUAL);
+      case GREATER:
+        return lessOrGreater(BSLLexer.GREATER, BSLLexer.GREATER_OR_EQUAL, Token.INVALID_TYPE);
+      case HASH:
+        return hash();
+      case AMPERSAND:
+        annotationExpected = true;
+        return emit(BSLLexer.AMPERSAND, Token.DEFAULT_CHANNEL, position + 1);
+      case TILDA:
+        identifierExpected = true;
+        return emit(BSLLexer.TILDA, Token.DEFAULT_CHANNEL, position + 1);
+      case DOT:
+        identifierExpected = true;
+        return emit(BSLLexer.DOT, Token.DEFAULT_CHANNEL, position + 1);
+      case PUNCTUATION:
+        return emit(PUNCTUATION_TYPES[character], Token.DEFAULT_CHANNEL, position + 1);
+      default:
+        return emit(BSLLexer.UNKNOWN, Token.HIDDEN_CHANNEL, position + 1);
+    }
+  }
+
+  @Override
+  public int getLine() {
+    return line;
+  }
+
+  @Override
+  public int getCharPositionInLine() {
+    return column;
+  }
+
+  @Nullable
+  @Override
+  public CharStream getInputStream() {
+    return null;
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public void setTokenFactory(TokenFactory<?> factory) {
+    // tokens are not created by a factory, the same token object is reused
+  }
+
+  @Override
+  public TokenFactory<?> getTokenFactory() {
+    return CommonTokenFactory.DEFAULT;
+  }
+
+  private Token whiteSpace() {
+    var end = position + 1;
+    while (end < length && getCharacterClass(chars[end]) == WHITE_SPACE) {
+      end++;
+    }
+
+    // a line break ends preprocessor directives and annotation or identifier expectations
+    for (var index = position; index < end; index++) {
+      if (chars[index] == '\n' || chars[index] == '\r') {
+        preprocessor = false;
+        regionNameExpected = false;
+        identifierExpected = false;
+        annotationExpected = false;
+        break;
+      }
+    }
+
+    return emit(BSLLexer.WHITE_SPACE, Token.HIDDEN_CHANNEL, end);
+  }
+
+  private Token word(boolean forceIdentifier, boolean annotation) {
+    var end = wordEnd(position + 1);
+
+    int type;
+    if (annotation) {
+      type = BSLLexer.ANNOTATION_CUSTOM_SYMBOL;
+    } else if (forceIdentifier) {
+      type = BSLLexer.IDENTIFIER;
+    } else {
+      type = getWordType(KEYWORDS, KEYWORD_TYPES, position, end, BSLLexer.IDENTIFIER);
+    }
+    return emit(type, Token.DEFAULT_CHANNEL, end);
+  }
+
+  private Token number() {
+    var end = digitsEnd(position + 1);
+    if (charAt(end) == '.') {
+      return emit(BSLLexer.FLOAT, Token.DEFAULT_CHANNEL, digitsEnd(end + 1));
+    }
+    return emit(BSLLexer.DECIMAL, Token.DEFAULT_CHANNEL, end);
+  }
+
+  // "string", "string start, | string part, | string tail"; doubled quotes are escaped quotes
+  private Token string(int closedType, int openType) {
+    var end = position + 1;
+    while (end < length) {
+      var character = chars[end];
+      if (character == '"') {
+        if (charAt(end + 1) == '"') {
+          end += 2;
+          continue;
+        }
+        return emit(closedType, Token.DEFAULT_CHANNEL, end + 1);
+      }
+      if (character == '\n' || character == '\r') {
+        break;
+      }
+      end++;
+    }
+    return emit(openType, Token.DEFAULT_CHANNEL, end);
+  }
+
+  private Token comment() {
+    return emit(BSLLexer.LINE_COMMENT, Token.HIDDEN_CHANNEL, lineEnd(position + 2));
+  }
+
+  private Token lessOrGreater(int type, int orEqualType, int notEqualType) {
+    var next = charAt(position + 1);
+    if (next == '=') {
+      return emit(orEqualType, Token.DEFAULT_CHANNEL, position + 2);
+    }
+    if (next == '>' && notEqualType != Token.INVALID_TYPE) {
+      return emit(notEqualType, Token.DEFAULT_CHANNEL, position + 2);
+    }
+    return emit(type, Token.DEFAULT_CHANNEL, position + 1);
+  }
+
+  private Token hash() {
+    // #Удаление, #Вставка and #КонецВставки of extensions are whole tokens on their own channel
+    var wordStart = skipSpacesAndTabs(position + 1);
+    var end = matchWord(wordStart, "удаление", "delete");
+    if (end > 0) {
+      deletedBlock = true;
+      return emit(BSLLexer.PREPROC_DELETE, Token.HIDDEN_CHANNEL, end);
+    }
+    end = matchWord(wordStart, "вставка", "insert");
+    if (end > 0) {
+      return emit(BSLLexer.PREPROC_INSERT, Token.HIDDEN_CHANNEL, end);
+    }
+    end = matchWord(wordStart, "конецвставки", "endinsert");
+    if (end > 0) {
+      return emit(BSLLexer.PREPROC_ENDINSERT, Token.HIDDEN_CHANNEL, end);
+    }
+
+    preprocessor = true;
+    return emit(BSLLexer.HASH, Token.DEFAULT_CHANNEL, position + 1);
+  }
+
+  // the rest of the line after #: known words get their own types, other words and the name
+  // of a region are identifiers, strings and comments are lexed as usual
+  private Token nextPreprocessorToken(char character, byte characterClass) {
+    if (characterClass == LETTER) {
+      var end = wordEnd(position + 1);
+      var type = BSLLexer.PREPROC_IDENTIFIER;
+      if (regionNameExpected) {
+        regionNameExpected = false;
+      } else {
+        type = getWordType(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, position, end, BSLLexer.PREPROC_IDENTIFIER);
+        regionNameExpected = type == BSLLexer.PREPROC_REGION;
+      }
+      return emit(type, Token.DEFAULT_CHANNEL, end);
+    }
+    if (characterClass == QUOTE) {
+      return emit(BSLLexer.PREPROC_STRING, Token.DEFAULT_CHANNEL, skipTo(position + 1, '"'));
+    }
+    if (characterClass == SLASH && charAt(position + 1) == '/') {
+      return comment();
+    }
+    if (character == '(') {
+      return emit(BSLLexer.PREPROC_LPAREN, Token.DEFAULT_CHANNEL, position + 1);
+    }
+    if (character == ')') {
+      return emit(BSLLexer.PREPROC_RPAREN, Token.DEFAULT_CHANNEL, position + 1);
+    }
+    if (character == '!') {
+      return emit(BSLLexer.PREPROC_EXCLAMATION_MARK, Token.DEFAULT_CHANNEL, position + 1);
+    }
+    return emit(BSLLexer.PREPROC_ANY, Token.DEFAULT_CHANNEL, position + 1);
+  }
+
+  // everything up to #КонецУдаления is removed by the extension
+  private Token nextDeletedToken() {
+    if (chars[position] == '#') {
+      var end = matchWord(skipSpacesAndTabs(position + 1), "конецудаления", "enddelete");
+      if (end > 0) {
+        deletedBlock = false;
+        return emit(BSLLexer.PREPROC_ENDDELETE, Token.HIDDEN_CHANNEL, end);
+      }
+    }
+
+    var end = position + 1;
+    while (end < length && chars[end] != '#') {
+      end++;
+    }
+    return emit(BSLLexer.PREPROC_DELETE_ANY, Token.HIDDEN_CHANNEL, end);
+  }
+
+  private Token emit(int type, int channel, int end) {
+    token.reset(type, channel, position, end - 1, line, column);
+    advance(end);
+    return token;
+  }
+
+  private void advance(int end) {
+    for (var index = position; index < end; index++) {
+      var character = chars[index];
+      if (character == '\n') {
+        line++;
+        column = 0;
+      } else if (!Character.isLowSurrogate(character) || index == 0 || !Character.isHighSurrogate(chars[index - 1])) {
+        // positions are counted in code points, like ANTLR char streams do,
+        // so the second half of a surrogate pair doesn't move the column
+        column++;
+      }
+    }
+    position = end;
+  }
+
+  private char charAt(int index) {
+    return index < length ? chars[index] : '\0';
+  }
+
+  private int wordEnd(int start) {
+    var end = start;
+    while (end < length) {
+      var characterClass = getCharacterClass(chars[end]);
+      if (characterClass != LETTER && characterClass != DIGIT) {
+        break;
+      }
+      end++;
+    }
+    return end;
+  }
+
+  private int digitsEnd(int start) {
+    var end = start;
+    while (end < length && getCharacterClass(chars[end]) == DIGIT) {
+      end++;
+    }
+    return end;
+  }
+
+  private int lineEnd(int start) {
+    var end = start;
+    while (end < length && chars[end] != '\n' && chars[end] != '\r') {
+      end++;
+    }
+    return end;
+  }
+
+  // end of a token closed by the terminator on the same line or the end of the line
+  private int skipTo(int start, char terminator) {
+    var end = start;
+    while (end < length) {
+      var character = chars[end];
+      if (character == terminator) {
+        return end + 1;
+      }
+      if (character == '\n' || character == '\r') {
+        break;
+      }
+      end++;
+    }
+    return end;
+  }
+
+  private int skipSpacesAndTabs(int start) {
+    var end = start;
+    while (end < length && (chars[end] == ' ' || chars[end] == '\t')) {
+      end++;
+    }
+    return end;
+  }
+
+  // end of the word if the text at start begins with one of the words ignoring case, otherwise -1
+  private int matchWord(int start, String russianWord, String englishWord) {
+    if (regionMatches(start, russianWord)) {
+      return start + russianWord.length();
+    }
+    if (regionMatches(start, englishWord)) {
+      return start + englishWord.length();
+    }
+    return -1;
+  }
+
+  private boolean regionMatches(int start, String word) {
+    if (start + word.length() > length) {
+      return false;
+    }
+    for (var index = 0; index < word.length(); index++) {
+      if (Character.toLowerCase(chars[start + index]) != word.charAt(index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int getWordType(char[][] words, int[] types, int start, int end, int defaultType) {
+    var wordLength = end - start;
+    var slot = hash(chars, start, end) & (words.length - 1);
+    while (words[slot] != null) {
+      var word = words[slot];
+      if (word.length == wordLength && keywordMatches(word, start)) {
+        return types[slot];
+      }
+      slot = (slot + 1) & (words.length - 1);
+    }
+    return defaultType;
+  }
+
+  private boolean keywordMatches(char[] keyword, int start) {
+    for (var index = 0; index < keyword.length; index++) {
+      if (Character.toLowerCase(chars[start + index]) != keyword[index]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte getCharacterClass(char character) {
+    if (character < ASCII_CLASSES.length) {
+      return ASCII_CLASSES[character];
+    }
+    return Character.isLetter(character) ? LETTER : OTHER;
+  }
+
+  private static int hash(char[] chars, int start, int end) {
+    var hash = 0;
+    for (var index = start; index < end; index++) {
+      hash = 31 * hash + Character.toLowerCase(chars[index]);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static byte[] createAsciiClasses() {
+    var classes = new byte[128];
+    for (var character = 'a'; character <= 'z'; character++) {
+      classes[character] = LETTER;
+      classes[Character.toUpperCase(character)] = LETTER;
+    }
+    classes['_'] = LETTER;
+    for (var character = '0'; character <= '9'; character++) {
+      classes[character] = DIGIT;
+    }
+    classes[' '] = WHITE_SPACE;
+    classes['\t'] = WHITE_SPACE;
+    classes['\f'] = WHITE_SPACE;
+    classes['\r'] = WHITE_SPACE;
+    classes['\n'] = WHITE_SPACE;
+    for (var character : "[]():;,=+-*%?".toCharArray()) {
+      classes[character] = PUNCTUATION;
+    }
+    classes['"'] = QUOTE;
+    classes['\''] = APOSTROPHE;
+    classes['|'] = BAR;
+    classes['/'] = SLASH;
+    classes['<'] = LESS;
+    classes['>'] = GREATER;
+    classes['#'] = HASH;
+    classes['&'] = AMPERSAND;
+    classes['~'] = TILDA;
+    classes['.'] = DOT;
+    return classes;
+  }
+
+  private static int[] createPunctuationTypes() {
+    var types = new int[128];
+    Arrays.fill(types, Token.INVALID_TYPE);
+    types['['] = BSLLexer.LBRACK;
+    types[']'] = BSLLexer.RBRACK;
+    types['('] = BSLLexer.LPAREN;
+    types[')'] = BSLLexer.RPAREN;
+    types[':'] = BSLLexer.COLON;
+    types[';'] = BSLLexer.SEMICOLON;
+    types[','] = BSLLexer.COMMA;
+    types['='] = BSLLexer.ASSIGN;
+    types['+'] = BSLLexer.PLUS;
+    types['-'] = BSLLexer.MINUS;
+    types['*'] = BSLLexer.MUL;
+    types['%'] = BSLLexer.MODULO;
+    types['?'] = BSLLexer.QUESTION;
+    return types;
+  }
+
+  private static void addKeywords() {
+    addKeyword(BSLLexer.PROCEDURE_KEYWORD, "Процедура", "Procedure");
+    addKeyword(BSLLexer.FUNCTION_KEYWORD, "Функция", "Function");
+    addKeyword(BSLLexer.ENDPROCEDURE_KEYWORD, "КонецПроцедуры", "EndProcedure");
+    addKeyword(BSLLexer.ENDFUNCTION_KEYWORD, "КонецФункции", "EndFunction");
+    addKeyword(BSLLexer.EXPORT_KEYWORD, "Экспорт", "Export");
+    addKeyword(BSLLexer.VAL_KEYWORD, "Знач", "Val");
+    addKeyword(BSLLexer.ENDIF_KEYWORD, "КонецЕсли", "EndIf");
+    addKeyword(BSLLexer.ENDDO_KEYWORD, "КонецЦикла", "EndDo");
+    addKeyword(BSLLexer.IF_KEYWORD, "Если", "If");
+    addKeyword(BSLLexer.ELSIF_KEYWORD, "ИначеЕсли", "ElsIf");
+    addKeyword(BSLLexer.ELSE_KEYWORD, "Иначе", "Else");
+    addKeyword(BSLLexer.THEN_KEYWORD, "Тогда", "Then");
+    addKeyword(BSLLexer.WHILE_KEYWORD, "Пока", "While");
+    addKeyword(BSLLexer.DO_KEYWORD, "Цикл", "Do");
+    addKeyword(BSLLexer.FOR_KEYWORD, "Для", "For");
+    addKeyword(BSLLexer.TO_KEYWORD, "По", "To");
+    addKeyword(BSLLexer.EACH_KEYWORD, "Каждого", "Each");
+    addKeyword(BSLLexer.IN_KEYWORD, "Из", "In");
+    addKeyword(BSLLexer.TRY_KEYWORD, "Попытка", "Try");
+    addKeyword(BSLLexer.EXCEPT_KEYWORD, "Исключение", "Except");
+    addKeyword(BSLLexer.ENDTRY_KEYWORD, "КонецПопытки", "EndTry");
+    addKeyword(BSLLexer.RETURN_KEYWORD, "Возврат", "Return");
+    addKeyword(BSLLexer.CONTINUE_KEYWORD, "Продолжить", "Continue");
+    addKeyword(BSLLexer.RAISE_KEYWORD, "ВызватьИсключение", "Raise");
+    addKeyword(BSLLexer.VAR_KEYWORD, "Перем", "Var");
+    addKeyword(BSLLexer.NOT_KEYWORD, "Не", "Not");
+    addKeyword(BSLLexer.OR_KEYWORD, "Или", "Or");
+    addKeyword(BSLLexer.AND_KEYWORD, "И", "And");
+    addKeyword(BSLLexer.NEW_KEYWORD, "Новый", "New");
+    addKeyword(BSLLexer.GOTO_KEYWORD, "Перейти", "Goto");
+    addKeyword(BSLLexer.BREAK_KEYWORD, "Прервать", "Break");
+    addKeyword(BSLLexer.EXECUTE_KEYWORD, "Выполнить", "Execute");
+    addKeyword(BSLLexer.ADDHANDLER_KEYWORD, "ДобавитьОбработчик", "AddHandler");
+    addKeyword(BSLLexer.REMOVEHANDLER_KEYWORD, "УдалитьОбработчик", "RemoveHandler");
+    addKeyword(BSLLexer.ASYNC_KEYWORD, "Асинх", "Async");
+    addKeyword(BSLLexer.WAIT_KEYWORD, "Ждать", "Await");
+    addKeyword(BSLLexer.TRUE, "Истина", "True");
+    addKeyword(BSLLexer.FALSE, "Ложь", "False");
+    addKeyword(BSLLexer.UNDEFINED, "Неопределено", "Undefined");
+    addKeyword(BSLLexer.NULL, "Null", "Null");
+  }
+
+  // the same words and types as in the preprocessor mode of BSLLexer
+  private static void addPreprocessorWords() {
+    addPreprocessorWord(BSLLexer.PREPROC_REGION, "Область", "Region");
+    addPreprocessorWord(BSLLexer.PREPROC_END_REGION, "КонецОбласти", "EndRegion");
+    addPreprocessorWord(BSLLexer.PREPROC_USE_KEYWORD, "Использовать", "Use");
+    addPreprocessorWord(BSLLexer.PREPROC_IF_KEYWORD, "Если", "If");
+    addPreprocessorWord(BSLLexer.PREPROC_THEN_KEYWORD, "Тогда", "Then");
+    addPreprocessorWord(BSLLexer.PREPROC_ELSIF_KEYWORD, "ИначеЕсли", "ElsIf");
+    addPreprocessorWord(BSLLexer.PREPROC_ELSE_KEYWORD, "Иначе", "Else");
+    addPreprocessorWord(BSLLexer.PREPROC_ENDIF_KEYWORD, "КонецЕсли", "EndIf");
+    addPreprocessorWord(BSLLexer.PREPROC_AND_KEYWORD, "И", "And");
+    addPreprocessorWord(BSLLexer.PREPROC_OR_KEYWORD, "Или", "Or");
+    addPreprocessorWord(BSLLexer.PREPROC_NOT_KEYWORD, "Не", "Not");
+    addPreprocessorWord(BSLLexer.PREPROC_MOBILEAPPCLIENT_SYMBOL, "МобильноеПриложениеКлиент", "MobileAppClient");
+    addPreprocessorWord(BSLLexer.PREPROC_MOBILEAPPSERVER_SYMBOL, "МобильноеПриложениеСервер", "MobileAppServer");
+    addPreprocessorWord(BSLLexer.PREPROC_MOBILECLIENT_SYMBOL, "МобильныйКлиент", "MobileClient");
+    addPreprocessorWord(
+      BSLLexer.PREPROC_THICKCLIENTORDINARYAPPLICATION_SYMBOL,
+      "ТолстыйКлиентОбычноеПриложение",
+      "ThickClientOrdinaryApplication"
+    );
+    addPreprocessorWord(
+      BSLLexer.PREPROC_THICKCLIENTMANAGEDAPPLICATION_SYMBOL,
+      "ТолстыйКлиентУправляемоеПриложение",
+      "ThickClientManagedApplication"
+    );
+    addPreprocessorWord(BSLLexer.PREPROC_EXTERNALCONNECTION_SYMBOL, "ВнешнееСоединение", "ExternalConnection");
+    addPreprocessorWord(BSLLexer.PREPROC_THINCLIENT_SYMBOL, "ТонкийКлиент", "ThinClient");
+    addPreprocessorWord(BSLLexer.PREPROC_WEBCLIENT_SYMBOL, "ВебКлиент", "WebClient");
+    addPreprocessorWord(BSLLexer.PREPROC_ATCLIENT_SYMBOL, "НаКлиенте", "AtClient");
+    addPreprocessorWord(BSLLexer.PREPROC_CLIENT_SYMBOL, "Клиент", "Client");
+    addPreprocessorWord(BSLLexer.PREPROC_ATSERVER_SYMBOL, "НаСервере", "AtServer");
+    addPreprocessorWord(BSLLexer.PREPROC_SERVER_SYMBOL, "Сервер", "Server");
+    addWord(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, BSLLexer.PREPROC_LINUX, "Linux");
+    addWord(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, BSLLexer.PREPROC_WINDOWS, "Windows");
+    addWord(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, BSLLexer.PREPROC_MACOS, "MacOS");
+  }
+
+  private static void addKeyword(int type, String russianKeyword, String englishKeyword) {
+    addWord(KEYWORDS, KEYWORD_TYPES, type, russianKeyword);
+    addWord(KEYWORDS, KEYWORD_TYPES, type, englishKeyword);
+  }
+
+  private static void addPreprocessorWord(int type, String russianWord, String englishWord) {
+    addWord(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, type, russianWord);
+    addWord(PREPROCESSOR_WORDS, PREPROCESSOR_WORD_TYPES, type, englishWord);
+  }
+
+  private static void addWord(char[][] words, int[] types, int type, String word) {
+    var chars = word.toLowerCase(Locale.ROOT).toCharArray();
+    var slot = hash(chars, 0, chars.length) & (words.length - 1);
+    while (words[slot] != null) {
+      if (Arrays.equals(words[slot], chars)) {
+        return;
+      }
+      slot = (slot + 1) & (words.length - 1);
+    }
+    words[slot] = chars;
+    types[slot] = type;
+  }
+
+  // token with text sliced from the source chars on demand
+  private static final class LexerToken extends CommonToken {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient char[] chars;
+
+    LexerToken(char[] chars) {
+      super(Token.INVALID_TYPE);
+      this.chars = chars;
+    }
+
+    void reset(int type, int channel, int start, int stop, int line, int charPositionInLine) {
+      this.type = type;
+      this.channel = channel;
+      this.start = start;
+      this.stop = stop;
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      text = null;
+    }
+
+    @Override
+    public String getText() {
+      if (text == null) {
+        text = type == Token.EOF ? "<EOF>" : new String(chars, start, stop - start + 1);
+      }
+      return text;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.languageserver.context.MetricStorage;
+import lombok.Value;
+import org.eclipse.lsp4j.Diagnostic;
+import org.sonar.api.batch.fs.InputFile;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+// Everything BSLCoreSensor computes for one file, ready to be saved to the sensor context
+@Value
+class FileAnalysisResult {
+  InputFile inputFile;
+  List<Diagnostic> diagnostics;
+  CpdTokensBuffer cpdTokens;
+  HighlightingBuffer highlightingData;
+  // metrics of a parsed file, or line metrics of a file which was only tokenized
+  @Nullable
+  MetricStorage metrics;
+  @Nullable
+  TokenLineMetrics lineMetrics;
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import lombok.Value;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class FileContentPrefetcher implements AutoCloseable {
+
+  private static final Logger LOGGER = Loggers.get(FileContentPrefetcher.class);
+
+  private final List<InputFile> inputFiles;
+  private final int capacity;
+  private final ExecutorService ioExecutor;
+
+  private final Lock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  // guarded by lock
+  private final Map<Integer, PrefetchResult> ready = new HashMap<>();
+  // guarded by lock
+  private int nextIndex;
+
+  public FileContentPrefetcher(List<InputFile> inputFiles, int ioThreads, int capacity) {
+    this.inputFiles = inputFiles;
+    this.capacity = capacity;
+    this.ioExecutor = Executors.newFixedThreadPool(ioThreads, new PrefetchThreadFactory());
+
+    // the pool starts tasks in order of submission, so the file of the next take is always being read
+    // or already read, even when other io threads wait for free room
+    for (var index = 0; index < inputFiles.size(); index++) {
+      var fileIndex = index;
+      ioExecutor.execute(() -> prefetch(fileIndex));
+    }
+    ioExecutor.shutdown();
+  }
+
+  // files are returned in order of the input collection, each with its index in it,
+  // and null is returned once all files are taken.
+  // a failure of the io thread is rethrown here, so the waiting worker fails instead of hanging
+  @Nullable
+  public PrefetchedFile take() {
+    int index;
+    PrefetchResult result;
+    lock.lock();
+    try {
+      if (nextIndex >= inputFiles.size()) {
+        return null;
+      }
+      index = nextIndex++;
+      changed.signalAll();
+
+      while (!ready.containsKey(index)) {
+        changed.await();
+      }
+      result = ready.remove(index);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for file content", e);
+    } finally {
+      lock.unlock();
+    }
+
+    var inputFile = inputFiles.get(index);
+    var failure = result.getFailure();
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Can't prefetch content of file " + inputFile.uri(), failure);
+    }
+    return new PrefetchedFile(index, inputFile, result.getContent());
+  }
+
+  @Override
+  public void close() {
+    ioExecutor.shutdownNow();
+    lock.lock();
+    try {
+      ready.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void prefetch(int index) {
+    PrefetchResult result;
+    try {
+      result = new PrefetchResult(readContent(inputFiles.get(index)), null);
+    } catch (Throwable e) { // NOSONAR every task must put a result, otherwise a worker waits forever
+      result = new PrefetchResult("", e);
+    }
+
+    lock.lock();
+    try {
+      // limits the amount of file contents held in memory ahead of parsers
+      while (index >= nextIndex + capacity) {
+        changed.await();
+      }
+      ready.put(index, result);
+      changed.signalAll();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static String readContent(InputFile inputFile) {
+    try (InputStream inputStream = inputFile.inputStream()) {
+      return IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOGGER.warn("Can't read content of file " + inputFile.uri(), e);
+      return "";
+    }
+  }
+
+  @Value
+  public static class PrefetchedFile {
+    int index;
+    InputFile inputFile;
+    String content;
+  }
+
+  @Value
+  private static class PrefetchResult {
+    String content;
+    @Nullable
+    Throwable failure;
+  }
+
+  private static class PrefetchThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      var thread = new Thread(runnable, "bsl-file-prefetch-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+
+import java.util.Arrays;
+
+// Highlighting ranges packed into one int array: start line, start character, end line, end character
+// and TypeOfText ordinal per range, without per-range objects.
+class HighlightingBuffer {
+
+  private static final int ENTRY_LENGTH = 5;
+  private static final int DEFAULT_CAPACITY = 256;
+  private static final TypeOfText[] TYPES_OF_TEXT = TypeOfText.values();
+
+  private int[] data;
+  private int size;
+
+  HighlightingBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  HighlightingBuffer(int capacity) {
+    data = new int[Math.max(capacity, 1) * ENTRY_LENGTH];
+  }
+
+  void add(int startLine, int startCharacter, int endLine, int endCharacter, TypeOfText typeOfText) {
+    var offset = size * ENTRY_LENGTH;
+    if (offset == data.length) {
+      data = Arrays.copyOf(data, data.length * 2);
+    }
+
+    data[offset] = startLine;
+    data[offset + 1] = startCharacter;
+    data[offset + 2] = endLine;
+    data[offset + 3] = endCharacter;
+    data[offset + 4] = typeOfText.ordinal();
+    size++;
+  }
+
+  // Extends the last range instead of adding a new one if the range of the same type follows it directly
+  // or, when whitespaceBefore is set, after a gap which contains only whitespace.
+  void append(
+    int startLine,
+    int startCharacter,
+    int endLine,
+    int endCharacter,
+    TypeOfText typeOfText,
+    boolean whitespaceBefore
+  ) {
+    if (size > 0) {
+      var last = size - 1;
+      var offset = last * ENTRY_LENGTH;
+      var gap = compare(startLine, startCharacter, getEndLine(last), getEndCharacter(last));
+      if (data[offset + 4] == typeOfText.ordinal() && (gap == 0 || (gap > 0 && whitespaceBefore))) {
+        data[offset + 2] = endLine;
+        data[offset + 3] = endCharacter;
+        return;
+      }
+    }
+
+    add(startLine, startCharacter, endLine, endCharacter, typeOfText);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  int getStartLine(int index) {
+    return data[index * ENTRY_LENGTH];
+  }
+
+  int getStartCharacter(int index) {
+    return data[index * ENTRY_LENGTH + 1];
+  }
+
+  int getEndLine(int index) {
+    return data[index * ENTRY_LENGTH + 2];
+  }
+
+  int getEndCharacter(int index) {
+    return data[index * ENTRY_LENGTH + 3];
+  }
+
+  TypeOfText getType(int index) {
+    return TYPES_OF_TEXT[data[index * ENTRY_LENGTH + 4]];
+  }
+
+  // stable insertion sort by start position: linear for ranges which are already (almost) in order
+  void sortByStart() {
+    var entry = new int[ENTRY_LENGTH];
+    for (var index = 1; index < size; index++) {
+      var line = getStartLine(index);
+      var character = getStartCharacter(index);
+      if (compareStart(index - 1, line, character) <= 0) {
+        continue;
+      }
+
+      System.arraycopy(data, index * ENTRY_LENGTH, entry, 0, ENTRY_LENGTH);
+      var position = index - 1;
+      while (position >= 0 && compareStart(position, line, character) > 0) {
+        System.arraycopy(data, position * ENTRY_LENGTH, data, (position + 1) * ENTRY_LENGTH, ENTRY_LENGTH);
+        position--;
+      }
+      System.arraycopy(entry, 0, data, (position + 1) * ENTRY_LENGTH, ENTRY_LENGTH);
+    }
+  }
+
+  private int compareStart(int index, int line, int character) {
+    return compare(getStartLine(index), getStartCharacter(index), line, character);
+  }
+
+  static int compare(int line, int character, int otherLine, int otherCharacter) {
+    if (line != otherLine) {
+      return Integer.compare(line, otherLine);
+    }
+    return Integer.compare(character, otherCharacter);
+  }
+
+  // trimmed copy, so this buffer can be reused for the next file
+  HighlightingBuffer copy() {
+    var copy = new HighlightingBuffer(size);
+    System.arraycopy(data, 0, copy.data, 0, size * ENTRY_LENGTH);
+    copy.size = size;
+    return copy;
+  }
+
+}
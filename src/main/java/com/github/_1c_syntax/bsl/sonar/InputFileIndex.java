@@ -0,0 +1,147 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
+import com.github._1c_syntax.utils.Absolute;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.Configuration;
+
+import javax.annotation.CheckForNull;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+// built by each sensor from its own module file system, so module sensors never see files of other modules.
+// the index is immutable and shared with the issues loader of the same sensor
+public class InputFileIndex {
+
+  private final FileSystem fileSystem;
+  private final Configuration config;
+
+  @Getter(value = AccessLevel.PRIVATE, lazy = true)
+  private final Index index = buildIndex();
+
+  public InputFileIndex(FileSystem fileSystem, Configuration config) {
+    this.fileSystem = fileSystem;
+    this.config = config;
+  }
+
+  public List<InputFile> inputFiles() {
+    return getIndex().getInputFiles();
+  }
+
+  public Map<Path, List<InputFile>> inputFilesBySourceRoot() {
+    return getIndex().getInputFilesBySourceRoot();
+  }
+
+  @CheckForNull
+  public InputFile inputFile(Path path) {
+    return getIndex().getInputFilesByPath().get(Absolute.path(path));
+  }
+
+  @CheckForNull
+  public InputFile inputFile(URI uri) {
+    var inputFile = getIndex().getInputFilesByUri().get(uri);
+    if (inputFile == null) {
+      inputFile = inputFile(Path.of(uri));
+    }
+    return inputFile;
+  }
+
+  private Index buildIndex() {
+    var baseDir = fileSystem.baseDir().toPath();
+
+    var sourceRoots = new SourceRootTrie();
+    getSourcesList().stream()
+      .map((String sourceDir) -> {
+        Path sourcePath = Path.of(sourceDir.trim());
+        if (sourcePath.isAbsolute()) {
+          return sourcePath;
+        } else {
+          return Path.of(baseDir.toString(), sourceDir);
+        }
+      })
+      .map(Absolute::path)
+      .forEach(sourceRoots::add);
+
+    var predicates = fileSystem.predicates();
+    Iterable<InputFile> files = fileSystem.inputFiles(predicates.hasLanguage(BSLLanguage.KEY));
+    // stable order of files makes the order of processing reproducible
+    List<InputFile> inputFiles = StreamSupport.stream(files.spliterator(), false)
+      .sorted(Comparator.comparing(InputFile::uri))
+      .collect(Collectors.toUnmodifiableList());
+
+    Map<Path, InputFile> inputFilesByPath = new HashMap<>(inputFiles.size());
+    Map<URI, InputFile> inputFilesByUri = new HashMap<>(inputFiles.size());
+    Map<Path, List<InputFile>> inputFilesBySourceRoot = new TreeMap<>();
+
+    inputFiles.forEach((InputFile inputFile) -> {
+      var uri = inputFile.uri();
+      var filePath = Absolute.path(uri);
+      var sourceRoot = Objects.requireNonNullElse(sourceRoots.find(filePath), baseDir);
+
+      inputFilesByPath.put(filePath, inputFile);
+      inputFilesByUri.put(uri, inputFile);
+      inputFilesBySourceRoot.computeIfAbsent(sourceRoot, key -> new ArrayList<>()).add(inputFile);
+    });
+
+    return new Index(
+      inputFiles,
+      Collections.unmodifiableMap(inputFilesByPath),
+      Collections.unmodifiableMap(inputFilesByUri),
+      Collections.unmodifiableMap(inputFilesBySourceRoot)
+    );
+  }
+
+  private List<String> getSourcesList() {
+    return config.get("sonar.sources")
+      .map(sources ->
+        Arrays.stream(StringUtils.split(sources, ","))
+          .map(String::strip)
+          .collect(Collectors.toList()))
+      .orElse(Collections.singletonList("."));
+  }
+
+  @Value
+  private static class Index {
+    List<InputFile> inputFiles;
+    Map<Path, InputFile> inputFilesByPath;
+    Map<URI, InputFile> inputFilesByUri;
+    Map<Path, List<InputFile>> inputFilesBySourceRoot;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.eclipse.lsp4j.Diagnostic;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.scanner.ScannerSide;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ScannerSide
+public class IssueBudget {
+
+  private final int maxIssuesPerRuleAndFile;
+  private final int maxIssuesPerProject;
+  @Getter
+  private final int maxRelatedLocations;
+
+  private final Map<BudgetKey, AtomicInteger> issuesPerRuleAndFile = new ConcurrentHashMap<>();
+  private final AtomicInteger issuesPerProject = new AtomicInteger();
+  private final Map<BudgetKey, Overflow> overflows = new ConcurrentHashMap<>();
+
+  public IssueBudget(Configuration config) {
+    maxIssuesPerRuleAndFile = config.getInt(BSLCommunityProperties.ISSUES_MAX_PER_RULE_AND_FILE_KEY)
+      .orElse(BSLCommunityProperties.ISSUES_MAX_PER_RULE_AND_FILE_DEFAULT_VALUE);
+    maxIssuesPerProject = config.getInt(BSLCommunityProperties.ISSUES_MAX_PER_PROJECT_KEY)
+      .orElse(BSLCommunityProperties.ISSUES_MAX_PER_PROJECT_DEFAULT_VALUE);
+    maxRelatedLocations = config.getInt(BSLCommunityProperties.ISSUES_MAX_RELATED_LOCATIONS_KEY)
+      .orElse(BSLCommunityProperties.ISSUES_MAX_RELATED_LOCATIONS_DEFAULT_VALUE);
+  }
+
+  // returns false and remembers the diagnostic for aggregation if issue is over the budget
+  public boolean tryAcquire(InputFile inputFile, RuleDecision ruleDecision, Diagnostic diagnostic) {
+    var key = new BudgetKey(inputFile, ruleDecision);
+
+    if (isWithinRuleAndFileLimit(key) && isWithinProjectLimit()) {
+      return true;
+    }
+
+    overflows.computeIfAbsent(key, budgetKey -> new Overflow(inputFile, ruleDecision, diagnostic))
+      .getCount()
+      .incrementAndGet();
+    return false;
+  }
+
+  public List<Overflow> drainOverflows() {
+    List<Overflow> drainedOverflows = new ArrayList<>(overflows.size());
+    overflows.keySet().forEach((BudgetKey key) -> {
+      var overflow = overflows.remove(key);
+      if (overflow != null) {
+        drainedOverflows.add(overflow);
+      }
+    });
+    return drainedOverflows;
+  }
+
+  private boolean isWithinRuleAndFileLimit(BudgetKey key) {
+    if (maxIssuesPerRuleAndFile <= 0) {
+      return true;
+    }
+    var counter = issuesPerRuleAndFile.computeIfAbsent(key, budgetKey -> new AtomicInteger());
+    return counter.incrementAndGet() <= maxIssuesPerRuleAndFile;
+  }
+
+  // the counter stops at the limit. Summary issues are not counted, so every rule and file
+  // with issues over the limit gets its summary issue
+  private boolean isWithinProjectLimit() {
+    if (maxIssuesPerProject <= 0) {
+      return true;
+    }
+    return issuesPerProject.getAndUpdate(count -> Math.min(count + 1, maxIssuesPerProject)) < maxIssuesPerProject;
+  }
+
+  @Value
+  private static class BudgetKey {
+    InputFile inputFile;
+    RuleDecision ruleDecision;
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Overflow {
+    private final InputFile inputFile;
+    private final RuleDecision ruleDecision;
+    // first diagnostic over the budget, its location is used for the summary issue
+    private final Diagnostic diagnostic;
+    private final AtomicInteger count = new AtomicInteger();
+  }
+}
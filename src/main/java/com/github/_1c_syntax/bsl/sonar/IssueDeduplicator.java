@@ -0,0 +1,55 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.scanner.ScannerSide;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Remembers saved diagnostics of all sensors by file, code and range,
+// so the same diagnostic from internal analysis and from (several) reports is saved once.
+@ScannerSide
+public class IssueDeduplicator {
+
+  private final Map<String, Integer> codeIds = new HashMap<>();
+  private final Map<InputFile, DiagnosticKeySet> keysByFile = new HashMap<>();
+
+  // returns false if the same diagnostic was already registered for the file
+  public synchronized boolean register(InputFile inputFile, Diagnostic diagnostic) {
+    var code = DiagnosticCode.getStringValue(diagnostic.getCode());
+    var codeId = codeIds.computeIfAbsent(code, key -> codeIds.size());
+    var range = diagnostic.getRange();
+
+    return keysByFile.computeIfAbsent(inputFile, key -> new DiagnosticKeySet()).add(
+      codeId,
+      range.getStart().getLine(),
+      range.getStart().getCharacter(),
+      range.getEnd().getLine(),
+      range.getEnd().getCharacter()
+    );
+  }
+
+}
@@ -24,32 +24,22 @@ package com.github._1c_syntax.bsl.sonar;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
 import com.github._1c_syntax.bsl.sonar.acc.ACCProperties;
 import com.github._1c_syntax.bsl.sonar.acc.ACCRuleDefinition;
-import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
-import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticRelatedInformation;
 import org.eclipse.lsp4j.DiagnosticSeverity;
-import org.eclipse.lsp4j.Position;
-import org.eclipse.lsp4j.Range;
-import org.sonar.api.batch.fs.FilePredicates;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
-import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.batch.rule.Severity;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.issue.NewIssueLocation;
-import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
-import javax.annotation.CheckForNull;
 import java.net.URI;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -60,41 +50,94 @@ public class IssuesLoader {
   private final SensorContext context;
   private final Map<DiagnosticSeverity, Severity> severityMap;
   private final Map<DiagnosticSeverity, RuleType> ruleTypeMap;
-  private final FileSystem fileSystem;
-  private final FilePredicates predicates;
-  private final boolean createExternalIssuesWithACCSources;
-
-  public IssuesLoader(SensorContext context) {
+  private final InputFileIndex inputFileIndex;
+  private final IssueBudget issueBudget;
+  private final IssueDeduplicator issueDeduplicator;
+  private final RuleDecisionTable ruleDecisionTable;
+  private final TextRangeResolver textRangeResolver = new TextRangeResolver();
+
+  public IssuesLoader(
+    SensorContext context,
+    InputFileIndex inputFileIndex,
+    IssueBudget issueBudget,
+    IssueDeduplicator issueDeduplicator
+  ) {
     this.context = context;
-    this.fileSystem = context.fileSystem();
-    this.predicates = fileSystem.predicates();
+    this.inputFileIndex = inputFileIndex;
+    this.issueBudget = issueBudget;
+    this.issueDeduplicator = issueDeduplicator;
     this.severityMap = createDiagnosticSeverityMap();
     this.ruleTypeMap = createRuleTypeMap();
-    this.createExternalIssuesWithACCSources = context.config().getBoolean(ACCProperties.CREATE_EXTERNAL_ISSUES)
+
+    var createExternalIssuesWithACCSources = context.config().getBoolean(ACCProperties.CREATE_EXTERNAL_ISSUES)
       .orElse(ACCProperties.CREATE_EXTERNAL_ISSUES_DEFAULT_VALUE);
+    this.ruleDecisionTable = new RuleDecisionTable(context.activeRules(), createExternalIssuesWithACCSources);
   }
 
   public void createIssue(InputFile inputFile, Diagnostic diagnostic) {
 
-    var needCreateExternalIssue = true;
     var ruleId = DiagnosticCode.getStringValue(diagnostic.getCode());
-    String keyRepository = BSLLanguageServerRuleDefinition.REPOSITORY_KEY;
+    var ruleDecision = ruleDecisionTable.get(ruleId, isACCDiagnostic(diagnostic));
 
-    if (isACCDiagnostic(diagnostic)) {
-      needCreateExternalIssue = this.createExternalIssuesWithACCSources;
-      keyRepository = ACCRuleDefinition.REPOSITORY_KEY;
+    if (ruleDecision.getKind() == RuleDecision.Kind.DROP
+      || !issueDeduplicator.register(inputFile, diagnostic)
+      || !issueBudget.tryAcquire(inputFile, ruleDecision, diagnostic)) {
+      return;
     }
 
-    var ruleKey = RuleKey.of(keyRepository, ruleId);
-    var activeRule = context.activeRules().find(ruleKey);
+    saveIssue(inputFile, diagnostic, ruleDecision);
+  }
+
+  public void saveAggregatedIssues() {
+    issueBudget.drainOverflows().forEach((IssueBudget.Overflow overflow) -> {
+      var diagnostic = overflow.getDiagnostic();
+      var ruleDecision = overflow.getRuleDecision();
+      LOGGER.warn(
+        "Issues limit exceeded for rule {} in file {}. {} issues are aggregated into one.",
+        ruleDecision.getRuleId(),
+        overflow.getInputFile().uri(),
+        overflow.getCount().get()
+      );
 
-    if (needCreateExternalIssue && activeRule == null) {
-      createExternalIssue(inputFile, diagnostic);
-      return;
+      var summaryDiagnostic = new Diagnostic();
+      summaryDiagnostic.setRange(diagnostic.getRange());
+      summaryDiagnostic.setSeverity(diagnostic.getSeverity());
+      summaryDiagnostic.setSource(diagnostic.getSource());
+      summaryDiagnostic.setCode(diagnostic.getCode());
+      summaryDiagnostic.setMessage(String.format(
+        "%s (%d issues of this rule in this file are aggregated into this one due to issues limit)",
+        diagnostic.getMessage(),
+        overflow.getCount().get()
+      ));
+
+      saveIssue(overflow.getInputFile(), summaryDiagnostic, ruleDecision);
+    });
+    releaseFiles();
+  }
+
+  // issues are saved file by file, so cached data of the file and of the files
+  // of its related locations is not needed after its issues are created
+  public void releaseFiles() {
+    textRangeResolver.releaseAll();
+  }
+
+  private void saveIssue(InputFile inputFile, Diagnostic diagnostic, RuleDecision ruleDecision) {
+    switch (ruleDecision.getKind()) {
+      case ACTIVE_RULE:
+        createActiveRuleIssue(inputFile, diagnostic, ruleDecision);
+        break;
+      case EXTERNAL_ISSUE:
+        createExternalIssue(inputFile, diagnostic, ruleDecision);
+        break;
+      default:
+        break;
     }
+  }
 
+  private void createActiveRuleIssue(InputFile inputFile, Diagnostic diagnostic, RuleDecision ruleDecision) {
     var issue = context.newIssue();
-    issue.forRule(ruleKey);
+    issue.forRule(Objects.requireNonNull(ruleDecision.getRuleKey()));
+    var ruleId = ruleDecision.getRuleId();
 
     Supplier<NewIssueLocation> newIssueLocationSupplier = issue::newLocation;
     Consumer<NewIssueLocation> newIssueAddLocationConsumer = issue::addLocation;
@@ -121,7 +164,7 @@ public class IssuesLoader {
     Consumer<NewIssueLocation> newIssueAtConsumer
   ) {
 
-    var textRange = getTextRange(inputFile, diagnostic.getRange(), ruleId);
+    var textRange = textRangeResolver.getTextRange(inputFile, diagnostic.getRange(), ruleId);
 
     var location = newIssueLocationSupplier.get();
     location.on(inputFile);
@@ -132,17 +175,21 @@ public class IssuesLoader {
 
     List<DiagnosticRelatedInformation> relatedInformation = diagnostic.getRelatedInformation();
     if (relatedInformation != null) {
+      var maxRelatedLocations = issueBudget.getMaxRelatedLocations();
+      if (maxRelatedLocations > 0 && relatedInformation.size() > maxRelatedLocations) {
+        relatedInformation = relatedInformation.subList(0, maxRelatedLocations);
+      }
       relatedInformation.forEach(
         (DiagnosticRelatedInformation relatedInformationEntry) -> {
-          var path = Paths.get(URI.create(relatedInformationEntry.getLocation().getUri())).toAbsolutePath();
-          var relatedInputFile = getInputFile(path);
+          var uri = URI.create(relatedInformationEntry.getLocation().getUri());
+          var relatedInputFile = inputFileIndex.inputFile(uri);
           if (relatedInputFile == null) {
-            LOGGER.warn("Can't find inputFile for absolute path {}", path);
+            LOGGER.warn("Can't find inputFile for uri {}", uri);
             return;
           }
           var relatedIssueLocation = newIssueLocationSupplier.get();
 
-          var relatedTextRange = getTextRange(
+          var relatedTextRange = textRangeResolver.getTextRange(
             relatedInputFile,
             relatedInformationEntry.getLocation().getRange(),
             ruleId
@@ -162,18 +209,12 @@ public class IssuesLoader {
     return ACCRuleDefinition.SOURCE.equals(diagnostic.getSource());
   }
 
-  private void createExternalIssue(InputFile inputFile, Diagnostic diagnostic) {
+  private void createExternalIssue(InputFile inputFile, Diagnostic diagnostic, RuleDecision ruleDecision) {
     var issue = context.newExternalIssue();
 
-    String engineId;
-    if (isACCDiagnostic(diagnostic)) {
-      engineId = ACCRuleDefinition.SOURCE;
-    } else {
-      engineId = "bsl-language-server";
-    }
-    issue.engineId(engineId);
+    issue.engineId(Objects.requireNonNull(ruleDecision.getEngineId()));
 
-    var ruleId = DiagnosticCode.getStringValue(diagnostic.getCode());
+    var ruleId = ruleDecision.getRuleId();
     issue.ruleId(ruleId);
 
     issue.type(ruleTypeMap.get(diagnostic.getSeverity()));
@@ -195,72 +236,6 @@ public class IssuesLoader {
     issue.save();
   }
 
-  @CheckForNull
-  private InputFile getInputFile(Path path) {
-    return fileSystem.inputFile(
-      predicates.and(
-        predicates.hasLanguage(BSLLanguage.KEY),
-        predicates.hasAbsolutePath(path.toAbsolutePath().toString())
-      )
-    );
-  }
-
-  private static TextRange getTextRange(InputFile inputFile, Range range, String ruleKey) {
-    Position start = range.getStart();
-    Position end = range.getEnd();
-    int startLine = start.getLine() + 1;
-
-    TextRange textRange;
-
-    try {
-      textRange = inputFile.newRange(
-        startLine,
-        start.getCharacter(),
-        end.getLine() + 1,
-        end.getCharacter()
-      );
-    } catch (IllegalArgumentException e) {
-      var formattedRange = String.format(
-        "start(%d, %d), end(%d, %d)",
-        range.getStart().getLine(),
-        range.getStart().getCharacter(),
-        range.getEnd().getLine(),
-        range.getEnd().getCharacter()
-      );
-      LOGGER.error(
-        "Can't compute TextRange for given Range: {} of rule: {} in file: {}.",
-        formattedRange,
-        ruleKey,
-        inputFile.uri(),
-        e
-      );
-
-      textRange = selectThisOrPreviousLine(inputFile, startLine);
-    }
-
-    return textRange;
-
-  }
-
-  private static TextRange selectThisOrPreviousLine(InputFile inputFile, int line) {
-    int lines = inputFile.lines();
-
-    if (line == 0) {
-      return inputFile.newRange(1, 0, lines, 0);
-    }
-
-    if (lines >= line) {
-      try {
-        return inputFile.selectLine(line);
-      } catch (IllegalArgumentException e) {
-        LOGGER.error("Can't compute TextRange for given line {}", line, e);
-        return selectThisOrPreviousLine(inputFile, line - 1);
-      }
-    } else {
-      return selectThisOrPreviousLine(inputFile, lines);
-    }
-  }
-
   private static Map<DiagnosticSeverity, Severity> createDiagnosticSeverityMap() {
     Map<DiagnosticSeverity, Severity> map = new EnumMap<>(DiagnosticSeverity.class);
     map.put(DiagnosticSeverity.Warning, Severity.MAJOR);
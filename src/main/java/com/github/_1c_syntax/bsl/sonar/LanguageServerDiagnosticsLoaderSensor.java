@@ -21,15 +21,11 @@
  */
 package com.github._1c_syntax.bsl.sonar;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github._1c_syntax.bsl.languageserver.reporters.data.AnalysisInfo;
-import com.github._1c_syntax.bsl.languageserver.reporters.data.FileInfo;
-import com.github._1c_syntax.bsl.languageserver.reporters.databind.AnalysisInfoObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
-import org.apache.commons.io.FileUtils;
+import com.github._1c_syntax.utils.Absolute;
+import lombok.Value;
 import org.eclipse.lsp4j.Diagnostic;
-import org.sonar.api.batch.fs.FilePredicates;
-import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -42,24 +38,39 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_CACHE_DIR_KEY;
 import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_PATH_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_WAIT_TIMEOUT_DEFAULT_VALUE;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_WAIT_TIMEOUT_KEY;
 
 public class LanguageServerDiagnosticsLoaderSensor implements Sensor {
 
   private final SensorContext context;
+  private final InputFileIndex inputFileIndex;
   private final IssuesLoader issueLoader;
-  private FileSystem fileSystem;
-  private FilePredicates predicates;
 
   private static final Logger LOGGER = Loggers.get(LanguageServerDiagnosticsLoaderSensor.class);
+  private static final int ISSUE_SINK_CAPACITY = 2 * Runtime.getRuntime().availableProcessors();
 
-  public LanguageServerDiagnosticsLoaderSensor(final SensorContext context) {
+  public LanguageServerDiagnosticsLoaderSensor(
+    final SensorContext context,
+    final IssueBudget issueBudget,
+    final IssueDeduplicator issueDeduplicator
+  ) {
     this.context = context;
-    this.issueLoader = new IssuesLoader(context);
+    this.inputFileIndex = new InputFileIndex(context.fileSystem(), context.config());
+    this.issueLoader = new IssuesLoader(context, inputFileIndex, issueBudget, issueDeduplicator);
 
   }
 
@@ -72,73 +83,237 @@ public class LanguageServerDiagnosticsLoaderSensor implements Sensor {
   @Override
   public void execute(SensorContext context) {
     List<File> reportFiles = ExternalReportProvider.getReportFiles(context, LANG_SERVER_REPORT_PATH_KEY);
-    reportFiles.forEach(this::parseAndSaveResults);
-  }
+    if (reportFiles.isEmpty()) {
+      return;
+    }
 
-  private void parseAndSaveResults(File analysisResultsFile) {
-    LOGGER.info("Parsing 'BSL Language Server' analysis results:");
-    LOGGER.info(analysisResultsFile.getAbsolutePath());
+    var waitTimeout = TimeUnit.SECONDS.toMillis(context.config().getInt(LANG_SERVER_REPORT_WAIT_TIMEOUT_KEY)
+      .orElse(LANG_SERVER_REPORT_WAIT_TIMEOUT_DEFAULT_VALUE));
+    // jackson mappers are reused per import thread
+    var reportReader = ThreadLocal.withInitial(() -> new AnalysisReportReader(waitTimeout));
+    var reportDiagnosticFilter = new ReportDiagnosticFilter(context.config());
+    // growing reports have no stable digest, so they are never cached
+    var reportImportCache = waitTimeout > 0 ? null : createReportImportCache(context, reportDiagnosticFilter);
 
-    AnalysisInfo analysisInfo = getAnalysisInfo(analysisResultsFile);
-    if (analysisInfo == null) {
-      return;
+    // tailed reports are read until their producers finish, so every report gets its own thread
+    var threads = waitTimeout > 0
+      ? reportFiles.size()
+      : Math.min(reportFiles.size(), Runtime.getRuntime().availableProcessors());
+    var executor = Executors.newFixedThreadPool(threads);
+
+    try (var issueSink = new OrderedSink<ReportEntry>(
+      "bsl-report-issues-writer",
+      ISSUE_SINK_CAPACITY,
+      this::saveReportEntry
+    )) {
+      var reportImport = new ReportImport(reportDiagnosticFilter, reportImportCache, issueSink);
+      List<Callable<Object>> tasks = reportFiles.stream()
+        .map((File reportFile) -> Executors.callable(() -> importReport(reportReader.get(), reportFile, reportImport)))
+        .collect(Collectors.toList());
+      for (Future<Object> result : executor.invokeAll(tasks)) {
+        getReportImportResult(result);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.error("Interrupted while importing analysis reports", e);
+    } finally {
+      executor.shutdownNow();
     }
 
-    List<FileInfo> fileinfos = analysisInfo.getFileinfos();
-    for (FileInfo fileInfo : fileinfos) {
-      processFileInfo(fileInfo);
+    if (reportImportCache != null) {
+      reportImportCache.prune();
     }
+    issueLoader.saveAggregatedIssues();
   }
 
-  private void processFileInfo(FileInfo fileInfo) {
-    fileSystem = context.fileSystem();
-    Path path = fileInfo.getPath();
-    predicates = fileSystem.predicates();
+  @CheckForNull
+  private static ReportImportCache createReportImportCache(
+    SensorContext context,
+    ReportDiagnosticFilter reportDiagnosticFilter
+  ) {
+    var cacheDir = context.config().get(LANG_SERVER_REPORT_CACHE_DIR_KEY)
+      .map(String::trim)
+      .filter(value -> !value.isEmpty())
+      .map(value -> context.fileSystem().baseDir().toPath().resolve(value));
+    return cacheDir
+      .map(path -> new ReportImportCache(
+        path,
+        context.fileSystem().baseDir().toPath(),
+        reportDiagnosticFilter.getFingerprint()
+      ))
+      .orElse(null);
+  }
 
-    InputFile inputFile = getInputFile(path);
-    if (inputFile == null) {
-      LOGGER.warn("Can't find inputFile for absolute path {}", path);
+  private static void getReportImportResult(Future<Object> result) throws InterruptedException {
+    try {
+      result.get();
+    } catch (ExecutionException e) {
+      LOGGER.error("Can't import analysis report file", e.getCause());
+    }
+  }
+
+  private void importReport(AnalysisReportReader reportReader, File analysisResultsFile, ReportImport reportImport) {
+    var reportImportCache = reportImport.getReportImportCache();
+    if (reportImportCache == null) {
+      parseAndSaveResults(reportReader, analysisResultsFile, reportImport, null);
       return;
     }
 
-    List<Diagnostic> diagnostics = fileInfo.getDiagnostics();
-    diagnostics.forEach((Diagnostic diagnostic) -> processDiagnostic(inputFile, diagnostic));
-  }
+    Path cacheFile;
+    try {
+      cacheFile = reportImportCache.cacheFile(analysisResultsFile);
+    } catch (IOException e) {
+      LOGGER.error("Can't read analysis report file", e);
+      return;
+    }
 
-  private void processDiagnostic(InputFile inputFile, Diagnostic diagnostic) {
-    issueLoader.createIssue(inputFile, diagnostic);
+    if (Files.exists(cacheFile) && replayResults(reportReader, cacheFile, analysisResultsFile, reportImport)) {
+      return;
+    }
+
+    try (var cacheWriter = reportImportCache.newWriter(cacheFile)) {
+      if (parseAndSaveResults(reportReader, analysisResultsFile, reportImport, cacheWriter)) {
+        cacheWriter.commit();
+      }
+    }
   }
 
-  @CheckForNull
-  private InputFile getInputFile(Path path) {
-    return fileSystem.inputFile(
-      predicates.and(
-        predicates.hasLanguage(BSLLanguage.KEY),
-        predicates.hasAbsolutePath(path.toAbsolutePath().toString())
-      )
-    );
+  private boolean replayResults(
+    AnalysisReportReader reportReader,
+    Path cacheFile,
+    File analysisResultsFile,
+    ReportImport reportImport
+  ) {
+    LOGGER.info("Importing unchanged 'BSL Language Server' analysis results from cache:");
+    LOGGER.info(analysisResultsFile.getAbsolutePath());
+
+    var reportImportCache = Objects.requireNonNull(reportImport.getReportImportCache());
+    try {
+      // cached diagnostics are already filtered, their paths are resolved against the index of this module
+      reportImportCache.replay(cacheFile, reportReader, (AnalysisReportEntry analysisReportEntry) -> {
+        var reportEntry = resolveReportEntry(analysisReportEntry, reportImport.getReportDiagnosticFilter());
+        if (reportEntry != null) {
+          reportImport.save(reportEntry);
+        }
+      });
+      return true;
+    } catch (IOException e) {
+      // diagnostics replayed before the error are saved once thanks to the issue deduplicator
+      LOGGER.warn("Can't read report import cache file {}, the report is parsed again", cacheFile, e);
+      return false;
+    }
   }
 
-  @Nullable
-  private static AnalysisInfo getAnalysisInfo(File analysisResultsFile) {
+  private boolean parseAndSaveResults(
+    AnalysisReportReader reportReader,
+    File analysisResultsFile,
+    ReportImport reportImport,
+    @Nullable ReportImportCache.Writer cacheWriter
+  ) {
+    LOGGER.info("Parsing 'BSL Language Server' analysis results:");
+    LOGGER.info(analysisResultsFile.getAbsolutePath());
 
-    String json;
     try {
-      json = FileUtils.readFileToString(analysisResultsFile, StandardCharsets.UTF_8);
+      reportReader.read(analysisResultsFile, (AnalysisReportEntry analysisReportEntry) -> {
+        var reportDiagnosticFilter = reportImport.getReportDiagnosticFilter();
+        var filteredEntry = filterDiagnostics(analysisReportEntry, reportDiagnosticFilter);
+        if (filteredEntry == null) {
+          return;
+        }
+        // entries are cached before path resolution, since the files of the report may belong to another module
+        if (cacheWriter != null) {
+          cacheWriter.write(filteredEntry.getPath(), filteredEntry.getDiagnostics());
+        }
+        var reportEntry = resolveReportEntry(filteredEntry, reportDiagnosticFilter);
+        if (reportEntry != null) {
+          reportImport.save(reportEntry);
+        }
+      });
+      return true;
+    } catch (JsonProcessingException e) {
+      LOGGER.error("Can't parse analysis report file", e);
     } catch (IOException e) {
       LOGGER.error("Can't read analysis report file", e);
+    }
+    return false;
+  }
+
+  // filters are applied in the import threads, so filtered diagnostics never reach the issue sink
+  @CheckForNull
+  private static AnalysisReportEntry filterDiagnostics(
+    AnalysisReportEntry analysisReportEntry,
+    ReportDiagnosticFilter reportDiagnosticFilter
+  ) {
+    if (reportDiagnosticFilter.isEmpty()) {
+      return analysisReportEntry;
+    }
+
+    var diagnostics = analysisReportEntry.getDiagnostics().stream()
+      .filter(reportDiagnosticFilter::accepts)
+      .collect(Collectors.toList());
+    if (diagnostics.isEmpty()) {
       return null;
     }
 
-    ObjectMapper objectMapper = new AnalysisInfoObjectMapper();
+    return new AnalysisReportEntry(analysisReportEntry.getPath(), diagnostics);
+  }
 
-    try {
-      return objectMapper.readValue(json, AnalysisInfo.class);
-    } catch (IOException e) {
-      LOGGER.error("Can't parse analysis report file", e);
+  @CheckForNull
+  private ReportEntry resolveReportEntry(
+    AnalysisReportEntry analysisReportEntry,
+    ReportDiagnosticFilter reportDiagnosticFilter
+  ) {
+    Path path = analysisReportEntry.getPath();
+
+    InputFile inputFile = inputFileIndex.inputFile(path);
+    if (inputFile == null) {
+      LOGGER.warn("Can't find inputFile for absolute path {}", path);
       return null;
     }
+
+    if (!reportDiagnosticFilter.isEmpty() && !reportDiagnosticFilter.acceptsPath(relativePath(inputFile))) {
+      return null;
+    }
+
+    return new ReportEntry(inputFile, analysisReportEntry.getDiagnostics());
+  }
+
+  private String relativePath(InputFile inputFile) {
+    var baseDir = Absolute.path(context.fileSystem().baseDir().toPath());
+    return baseDir.relativize(Absolute.path(inputFile.uri())).toString().replace(File.separatorChar, '/');
+  }
+
+  // called only from the single writer thread
+  private void saveReportEntry(ReportEntry reportEntry) {
+    var inputFile = reportEntry.getInputFile();
+    reportEntry.getDiagnostics().forEach((Diagnostic diagnostic) -> processDiagnostic(inputFile, diagnostic));
+    issueLoader.releaseFiles();
+  }
+
+  private void processDiagnostic(InputFile inputFile, Diagnostic diagnostic) {
+    issueLoader.createIssue(inputFile, diagnostic);
+  }
+
+  @Value
+  private static class ReportEntry {
+    InputFile inputFile;
+    List<Diagnostic> diagnostics;
   }
 
+  // state shared by the import tasks of one sensor run
+  @Value
+  private static class ReportImport {
+    ReportDiagnosticFilter reportDiagnosticFilter;
+    @Nullable
+    ReportImportCache reportImportCache;
+    OrderedSink<ReportEntry> issueSink;
+
+    // entries of one report are saved in report order, entries of different reports interleave.
+    // the bounded sink blocks import threads while the writer is behind, so a huge report is not
+    // decoded into memory ahead of issue saving
+    void save(ReportEntry reportEntry) {
+      issueSink.accept(reportEntry);
+    }
+  }
 
 }
@@ -0,0 +1,198 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Single writer stage: items are accepted from any thread and passed to the consumer on one dedicated thread.
+// Items with sequence numbers are consumed in order of their numbers, items without them in order of arrival.
+// Producers are blocked while the handoff queue is full or while their sequence number is too far ahead
+// of the next expected one, so a slow consumer holds back producers instead of collecting their items.
+public class OrderedSink<T> implements AutoCloseable {
+
+  private static final int UNORDERED = -1;
+  private static final int END_OF_STREAM = -2;
+  private static final long WRITER_CHECK_INTERVAL_MS = 100;
+
+  private final Consumer<T> consumer;
+  private final int capacity;
+  private final BlockingQueue<SequencedItem<T>> queue;
+  private final Thread writerThread;
+
+  private final Lock windowLock = new ReentrantLock();
+  private final Condition windowMoved = windowLock.newCondition();
+  // guarded by windowLock, changed only by the writer thread
+  private int nextSequenceNumber;
+
+  @Nullable
+  private volatile Throwable writerFailure;
+
+  // capacity limits both the handoff queue and the distance between accepted and consumed sequence numbers
+  public OrderedSink(String name, int capacity, Consumer<T> consumer) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity of writer " + name + " must be positive");
+    }
+    this.consumer = consumer;
+    this.capacity = capacity;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    writerThread = new Thread(this::write, name);
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  // every sequence number starting from zero must be accepted once,
+  // otherwise producers of the numbers after the gap wait forever
+  public void accept(int sequenceNumber, T item) {
+    windowLock.lock();
+    try {
+      while (sequenceNumber >= nextSequenceNumber + capacity) {
+        if (!windowMoved.await(WRITER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          checkWriterAlive();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for writer " + writerThread.getName(), e);
+    } finally {
+      windowLock.unlock();
+    }
+
+    put(new SequencedItem<>(sequenceNumber, item));
+  }
+
+  public void accept(T item) {
+    put(new SequencedItem<>(UNORDERED, item));
+  }
+
+  @Override
+  public void close() {
+    put(new SequencedItem<>(END_OF_STREAM, null));
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for writer " + writerThread.getName(), e);
+    }
+
+    var failure = writerFailure;
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Writer " + writerThread.getName() + " failed", failure);
+    }
+  }
+
+  // producers fail instead of waiting forever if the writer thread is gone
+  private void put(SequencedItem<T> sequencedItem) {
+    try {
+      while (!queue.offer(sequencedItem, WRITER_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        checkWriterAlive();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for writer " + writerThread.getName(), e);
+    }
+  }
+
+  private void checkWriterAlive() {
+    if (!writerThread.isAlive()) {
+      throw new IllegalStateException("Writer " + writerThread.getName() + " has stopped");
+    }
+  }
+
+  private void write() {
+    // holds only sequence numbers inside the window, so it never grows over the capacity
+    Map<Integer, T> pending = new TreeMap<>();
+    var expectedSequenceNumber = 0;
+
+    while (true) {
+      SequencedItem<T> sequencedItem;
+      try {
+        sequencedItem = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      var sequenceNumber = sequencedItem.getSequenceNumber();
+      if (sequenceNumber == END_OF_STREAM) {
+        // items after a gap (e.g. a failed worker) are flushed in order as well
+        pending.values().forEach(this::consume);
+        return;
+      }
+
+      if (sequenceNumber == UNORDERED) {
+        consume(sequencedItem.getItem());
+        continue;
+      }
+
+      pending.put(sequenceNumber, sequencedItem.getItem());
+      if (pending.containsKey(expectedSequenceNumber)) {
+        while (pending.containsKey(expectedSequenceNumber)) {
+          consume(pending.remove(expectedSequenceNumber));
+          expectedSequenceNumber++;
+        }
+        moveWindow(expectedSequenceNumber);
+      }
+    }
+  }
+
+  private void moveWindow(int sequenceNumber) {
+    windowLock.lock();
+    try {
+      nextSequenceNumber = sequenceNumber;
+      windowMoved.signalAll();
+    } finally {
+      windowLock.unlock();
+    }
+  }
+
+  private void consume(T item) {
+    try {
+      consumer.accept(item);
+    } catch (Throwable e) { // NOSONAR the writer must keep draining the queue, otherwise producers wait forever
+      if (writerFailure == null) {
+        writerFailure = e;
+      }
+    }
+  }
+
+  @Value
+  private static class SequencedItem<T> {
+    int sequenceNumber;
+    @Nullable
+    T item;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import lombok.Getter;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.WildcardPattern;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_CODES_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_SOURCES_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_CODES_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_PATHS_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_SEVERITIES_KEY;
+import static com.github._1c_syntax.bsl.sonar.BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY;
+
+// Include/exclude filters of imported report diagnostics. Empty include filter accepts everything,
+// exclude filter wins over include filter.
+class ReportDiagnosticFilter {
+
+  private final Set<String> includeCodes;
+  private final Set<String> excludeCodes;
+  private final Set<String> includeSources;
+  private final Set<String> excludeSources;
+  private final Set<String> includeSeverities;
+  private final Set<String> excludeSeverities;
+  private final WildcardPattern[] includePaths;
+  private final WildcardPattern[] excludePaths;
+  // textual form of the filter settings, used as a part of report import cache keys
+  @Getter
+  private final String fingerprint;
+
+  ReportDiagnosticFilter(Configuration config) {
+    includeCodes = getValues(config, LANG_SERVER_REPORT_INCLUDE_CODES_KEY, false);
+    excludeCodes = getValues(config, LANG_SERVER_REPORT_EXCLUDE_CODES_KEY, false);
+    includeSources = getValues(config, LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY, false);
+    excludeSources = getValues(config, LANG_SERVER_REPORT_EXCLUDE_SOURCES_KEY, false);
+    includeSeverities = getValues(config, LANG_SERVER_REPORT_INCLUDE_SEVERITIES_KEY, true);
+    excludeSeverities = getValues(config, LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY, true);
+    includePaths = WildcardPattern.create(config.getStringArray(LANG_SERVER_REPORT_INCLUDE_PATHS_KEY));
+    excludePaths = WildcardPattern.create(config.getStringArray(LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY));
+
+    fingerprint = Stream.of(
+      LANG_SERVER_REPORT_INCLUDE_CODES_KEY,
+      LANG_SERVER_REPORT_EXCLUDE_CODES_KEY,
+      LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY,
+      LANG_SERVER_REPORT_EXCLUDE_SOURCES_KEY,
+      LANG_SERVER_REPORT_INCLUDE_SEVERITIES_KEY,
+      LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY,
+      LANG_SERVER_REPORT_INCLUDE_PATHS_KEY,
+      LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY
+    )
+      .map(key -> key + "=" + String.join(",", config.getStringArray(key)))
+      .collect(Collectors.joining("\n"));
+  }
+
+  boolean isEmpty() {
+    return includeCodes.isEmpty()
+      && excludeCodes.isEmpty()
+      && includeSources.isEmpty()
+      && excludeSources.isEmpty()
+      && includeSeverities.isEmpty()
+      && excludeSeverities.isEmpty()
+      && includePaths.length == 0
+      && excludePaths.length == 0;
+  }
+
+  // relativePath is a path relative to the project base dir with '/' separators
+  boolean acceptsPath(String relativePath) {
+    if (includePaths.length > 0 && !WildcardPattern.match(includePaths, relativePath)) {
+      return false;
+    }
+    return !WildcardPattern.match(excludePaths, relativePath);
+  }
+
+  boolean accepts(Diagnostic diagnostic) {
+    return accepts(includeCodes, excludeCodes, DiagnosticCode.getStringValue(diagnostic.getCode()))
+      && accepts(includeSources, excludeSources, diagnostic.getSource())
+      && accepts(includeSeverities, excludeSeverities, severityName(diagnostic.getSeverity()));
+  }
+
+  private static boolean accepts(Set<String> includeValues, Set<String> excludeValues, @Nullable String value) {
+    if (!includeValues.isEmpty() && !includeValues.contains(value)) {
+      return false;
+    }
+    return !excludeValues.contains(value);
+  }
+
+  @Nullable
+  private static String severityName(@Nullable DiagnosticSeverity severity) {
+    if (severity == null) {
+      return null;
+    }
+    return severity.name().toLowerCase(Locale.ENGLISH);
+  }
+
+  private static Set<String> getValues(Configuration config, String key, boolean ignoreCase) {
+    return Arrays.stream(config.getStringArray(key))
+      .map(String::trim)
+      .filter(value -> !value.isEmpty())
+      .map(value -> ignoreCase ? value.toLowerCase(Locale.ENGLISH) : value)
+      .collect(Collectors.toSet());
+  }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.utils.Absolute;
+import org.eclipse.lsp4j.Diagnostic;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Cache of imported reports. Report entries are stored with their report paths and with diagnostics filtered
+// by code, source and severity as compact reports (see CompactReportWriter) under the digest of the report content
+// and of the import settings, so an unchanged report is replayed without parsing the full json. Paths are resolved
+// against the file index of the module on every import, so a cache file written by one module is valid for another.
+// Rule decisions and text ranges are not cached: they depend on the quality profile and on the file contents,
+// which may change between runs with the same report.
+// Every module keeps its cache files in its own subdirectory, so pruning never touches files of other modules.
+class ReportImportCache {
+
+  private static final Logger LOGGER = Loggers.get(ReportImportCache.class);
+
+  private static final String CACHE_FILE_SUFFIX = ".cache";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  // names of cache files and of their temp files, other files of the directory are never touched
+  private static final Pattern CACHE_FILE_NAME_PATTERN = Pattern.compile("[0-9a-f]{64}\\.cache(\\d+\\.tmp)?");
+
+  private final Path cacheDir;
+  private final String settingsFingerprint;
+  private final Set<Path> usedCacheFiles = ConcurrentHashMap.newKeySet();
+
+  ReportImportCache(Path cacheRootDir, Path moduleBaseDir, String settingsFingerprint) {
+    this.cacheDir = cacheRootDir.resolve(moduleDirName(moduleBaseDir));
+    this.settingsFingerprint = settingsFingerprint;
+  }
+
+  Path cacheFile(File reportFile) throws IOException {
+    var cacheFile = cacheDir.resolve(digest(reportFile) + CACHE_FILE_SUFFIX);
+    usedCacheFiles.add(cacheFile);
+    return cacheFile;
+  }
+
+  void replay(
+    Path cacheFile,
+    AnalysisReportReader reportReader,
+    Consumer<AnalysisReportEntry> entryConsumer
+  ) throws IOException {
+    reportReader.read(cacheFile.toFile(), entryConsumer);
+  }
+
+  Writer newWriter(Path cacheFile) {
+    return new Writer(cacheFile);
+  }
+
+  // removes cache files of reports which were not imported by the module in this run and leftovers of failed
+  // writes. only files named by the cache are removed, in case the user keeps other files in the directory
+  void prune() {
+    if (!Files.isDirectory(cacheDir)) {
+      return;
+    }
+
+    try (var files = Files.list(cacheDir)) {
+      List<Path> staleCacheFiles = files
+        .filter(file -> CACHE_FILE_NAME_PATTERN.matcher(file.getFileName().toString()).matches())
+        .filter(Files::isRegularFile)
+        .filter(file -> !usedCacheFiles.contains(file))
+        .collect(Collectors.toList());
+      for (Path staleCacheFile : staleCacheFiles) {
+        Files.deleteIfExists(staleCacheFile);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Can't clean report import cache directory {}", cacheDir, e);
+    }
+  }
+
+  private String digest(File reportFile) throws IOException {
+    var messageDigest = newMessageDigest();
+    messageDigest.update(settingsFingerprint.getBytes(StandardCharsets.UTF_8));
+    try (InputStream input = new DigestInputStream(Files.newInputStream(reportFile.toPath()), messageDigest)) {
+      input.transferTo(OutputStream.nullOutputStream());
+    }
+    return toHex(messageDigest.digest());
+  }
+
+  private static String moduleDirName(Path moduleBaseDir) {
+    var messageDigest = newMessageDigest();
+    messageDigest.update(Absolute.path(moduleBaseDir).toString().getBytes(StandardCharsets.UTF_8));
+    return toHex(messageDigest.digest());
+  }
+
+  private static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] digest) {
+    var hash = new StringBuilder();
+    for (byte value : digest) {
+      hash.append(String.format("%02x", value));
+    }
+    return hash.toString();
+  }
+
+  // best effort writer: cache write errors are logged and never break the import
+  class Writer implements Closeable {
+
+    private final Path cacheFile;
+    @Nullable
+    private Path tempFile;
+    @Nullable
+    private CompactReportWriter output;
+
+    private Writer(Path cacheFile) {
+      this.cacheFile = cacheFile;
+      try {
+        Files.createDirectories(cacheDir);
+        tempFile = Files.createTempFile(cacheDir, cacheFile.getFileName().toString(), TEMP_FILE_SUFFIX);
+        output = new CompactReportWriter(Files.newOutputStream(tempFile));
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    void write(Path path, List<Diagnostic> diagnostics) {
+      if (output == null) {
+        return;
+      }
+
+      try {
+        output.write(path, diagnostics);
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    // makes the written cache visible for the next runs
+    void commit() {
+      if (output == null) {
+        return;
+      }
+
+      try {
+        // closing writes the end record, so a truncated cache file is never committed
+        output.close();
+        output = null;
+        Files.move(
+          Objects.requireNonNull(tempFile),
+          cacheFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE
+        );
+        tempFile = null;
+      } catch (IOException e) {
+        fail(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      closeQuietly();
+      if (tempFile == null) {
+        return;
+      }
+      try {
+        Files.deleteIfExists(tempFile);
+      } catch (IOException e) {
+        LOGGER.debug("Can't delete report import cache file {}", tempFile, e);
+      }
+    }
+
+    private void fail(IOException e) {
+      LOGGER.warn("Can't write report import cache file {}", cacheFile, e);
+      closeQuietly();
+    }
+
+    private void closeQuietly() {
+      if (output == null) {
+        return;
+      }
+      try {
+        output.close();
+      } catch (IOException e) {
+        LOGGER.debug("Can't close report import cache file {}", tempFile, e);
+      }
+      output = null;
+    }
+
+  }
+
+}
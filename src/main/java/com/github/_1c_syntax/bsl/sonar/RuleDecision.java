@@ -0,0 +1,59 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.sonar.api.rule.RuleKey;
+
+import javax.annotation.Nullable;
+
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RuleDecision {
+
+  public enum Kind {
+    ACTIVE_RULE,
+    EXTERNAL_ISSUE,
+    DROP
+  }
+
+  Kind kind;
+  String ruleId;
+  @Nullable
+  RuleKey ruleKey;
+  @Nullable
+  String engineId;
+
+  public static RuleDecision activeRule(RuleKey ruleKey) {
+    return new RuleDecision(Kind.ACTIVE_RULE, ruleKey.rule(), ruleKey, null);
+  }
+
+  public static RuleDecision externalIssue(String engineId, String ruleId) {
+    return new RuleDecision(Kind.EXTERNAL_ISSUE, ruleId, null, engineId);
+  }
+
+  public static RuleDecision drop(String ruleId) {
+    return new RuleDecision(Kind.DROP, ruleId, null, null);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.sonar.acc.ACCRuleDefinition;
+import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.rule.RuleKey;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+public class RuleDecisionTable {
+
+  public static final String BSL_LS_ENGINE_ID = "bsl-language-server";
+
+  private final Map<String, RuleDecision> bslDecisions;
+  private final Map<String, RuleDecision> accDecisions;
+  private final boolean createExternalIssuesWithACCSources;
+
+  public RuleDecisionTable(ActiveRules activeRules, boolean createExternalIssuesWithACCSources) {
+    this.createExternalIssuesWithACCSources = createExternalIssuesWithACCSources;
+    this.bslDecisions = activeRulesDecisions(activeRules, BSLLanguageServerRuleDefinition.REPOSITORY_KEY);
+    this.accDecisions = activeRulesDecisions(activeRules, ACCRuleDefinition.REPOSITORY_KEY);
+  }
+
+  public RuleDecision get(String ruleId, boolean isACCDiagnostic) {
+    if (isACCDiagnostic) {
+      return accDecisions.computeIfAbsent(ruleId, this::inactiveACCDecision);
+    }
+    return bslDecisions.computeIfAbsent(ruleId, RuleDecisionTable::inactiveBSLDecision);
+  }
+
+  private RuleDecision inactiveACCDecision(String ruleId) {
+    if (createExternalIssuesWithACCSources) {
+      return RuleDecision.externalIssue(ACCRuleDefinition.SOURCE, ruleId);
+    }
+    return RuleDecision.drop(ruleId);
+  }
+
+  private static RuleDecision inactiveBSLDecision(String ruleId) {
+    return RuleDecision.externalIssue(BSL_LS_ENGINE_ID, ruleId);
+  }
+
+  private static Map<String, RuleDecision> activeRulesDecisions(ActiveRules activeRules, String repositoryKey) {
+    return activeRules.findByRepository(repositoryKey).stream()
+      .map(ActiveRule::ruleKey)
+      .collect(Collectors.toMap(
+        RuleKey::rule,
+        RuleDecision::activeRule,
+        (first, second) -> first,
+        ConcurrentHashMap::new
+      ));
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import javax.annotation.CheckForNull;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+class SourceRootTrie {
+
+  private final Node rootNode = new Node();
+
+  void add(Path sourceRoot) {
+    var node = rootNode;
+    for (Path element : elements(sourceRoot)) {
+      node = node.children.computeIfAbsent(element, key -> new Node());
+    }
+    node.sourceRoot = sourceRoot;
+  }
+
+  // returns the deepest source root containing the given absolute path
+  @CheckForNull
+  Path find(Path path) {
+    var node = rootNode;
+    Path sourceRoot = null;
+    for (Path element : elements(path)) {
+      node = node.children.get(element);
+      if (node == null) {
+        break;
+      }
+      if (node.sourceRoot != null) {
+        sourceRoot = node.sourceRoot;
+      }
+    }
+    return sourceRoot;
+  }
+
+  // root component is not an element of Path iteration, so it is added explicitly
+  private static Iterable<Path> elements(Path path) {
+    var root = path.getRoot();
+    if (root == null) {
+      return path;
+    }
+    var elements = new ArrayList<Path>(path.getNameCount() + 1);
+    elements.add(root);
+    path.forEach(elements::add);
+    return elements;
+  }
+
+  private static class Node {
+    private final Map<Path, Node> children = new HashMap<>();
+    @CheckForNull
+    private Path sourceRoot;
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+// Input stream over a file which is still being written by another process: end of file is treated as
+// "no data yet" and reading is retried until new data appears or the wait timeout expires.
+// The reader is expected to stop on its own end-of-stream marker.
+class TailingInputStream extends FilterInputStream {
+
+  private static final long POLL_INTERVAL_MILLIS = 50;
+
+  private final long waitTimeoutNanos;
+  private long lastDataTime;
+
+  TailingInputStream(InputStream inputStream, long waitTimeoutMillis) {
+    super(inputStream);
+    this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+    this.lastDataTime = System.nanoTime();
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (true) {
+      var value = super.read();
+      if (value != -1) {
+        lastDataTime = System.nanoTime();
+        return value;
+      }
+      waitForData();
+    }
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (length == 0) {
+      return 0;
+    }
+
+    while (true) {
+      var count = super.read(buffer, offset, length);
+      if (count > 0) {
+        lastDataTime = System.nanoTime();
+        return count;
+      }
+      waitForData();
+    }
+  }
+
+  @Override
+  public long skip(long count) throws IOException {
+    var skipped = 0L;
+    while (skipped < count) {
+      read();
+      skipped++;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void waitForData() throws IOException {
+    if (System.nanoTime() - lastDataTime > waitTimeoutNanos) {
+      throw new IOException(
+        String.format("No new data in report for %d ms", TimeUnit.NANOSECONDS.toMillis(waitTimeoutNanos))
+      );
+    }
+
+    try {
+      Thread.sleep(POLL_INTERVAL_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for report data");
+    }
+  }
+
+}
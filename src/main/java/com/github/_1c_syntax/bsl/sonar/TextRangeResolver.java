@@ -0,0 +1,96 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TextRangeResolver {
+
+  private static final Logger LOGGER = Loggers.get(TextRangeResolver.class);
+
+  private final Map<InputFile, int[]> lineLengths = new ConcurrentHashMap<>();
+
+  public TextRange getTextRange(InputFile inputFile, Range range, String ruleKey) {
+    int[] lengths = lineLengths.computeIfAbsent(inputFile, TextRangeResolver::computeLineLengths);
+    int lines = lengths.length;
+
+    Position start = range.getStart();
+    Position end = range.getEnd();
+
+    int startLine = clamp(start.getLine() + 1, 1, lines);
+    int startChar = clamp(start.getCharacter(), 0, lengths[startLine - 1]);
+    int endLine = clamp(end.getLine() + 1, 1, lines);
+    int endChar = clamp(end.getCharacter(), 0, lengths[endLine - 1]);
+    if (end.getLine() >= lines) {
+      // range ends after the last line, so it is extended up to the end of file
+      endChar = lengths[lines - 1];
+    }
+
+    if (startLine != start.getLine() + 1
+      || startChar != start.getCharacter()
+      || endLine != end.getLine() + 1
+      || endChar != end.getCharacter()) {
+      LOGGER.debug(
+        "Range start({}, {}), end({}, {}) of rule {} is out of bounds of file {}. Clamping it to the file content.",
+        start.getLine(),
+        start.getCharacter(),
+        end.getLine(),
+        end.getCharacter(),
+        ruleKey,
+        inputFile.uri()
+      );
+    }
+
+    if (startLine < endLine || (startLine == endLine && startChar < endChar)) {
+      return inputFile.newRange(startLine, startChar, endLine, endChar);
+    }
+
+    // empty or inverted ranges are not accepted by sonar, so the whole start line is selected
+    return inputFile.selectLine(startLine);
+  }
+
+  // drops line lengths of all resolved files, including the files of related locations
+  public void releaseAll() {
+    lineLengths.clear();
+  }
+
+  private static int[] computeLineLengths(InputFile inputFile) {
+    int lines = inputFile.lines();
+    int[] lengths = new int[lines];
+    for (var line = 1; line <= lines; line++) {
+      lengths[line - 1] = inputFile.selectLine(line).end().lineOffset();
+    }
+    return lengths;
+  }
+
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(value, max));
+  }
+}
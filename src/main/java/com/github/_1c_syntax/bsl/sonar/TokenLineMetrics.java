@@ -0,0 +1,59 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.BitSet;
+
+// NCLOC and comment lines counted from the token stream, for files which are analyzed without a parse tree
+class TokenLineMetrics {
+
+  private final BitSet codeLines = new BitSet();
+  private final BitSet commentLines = new BitSet();
+
+  void add(Token token) {
+    if (token.getType() == Token.EOF) {
+      return;
+    }
+
+    // whitespace and other hidden tokens don't make a line code or comment
+    if (token.getType() == BSLLexer.LINE_COMMENT) {
+      commentLines.set(token.getLine());
+    } else if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+      codeLines.set(token.getLine());
+    }
+  }
+
+  int getNcloc() {
+    return codeLines.cardinality();
+  }
+
+  int[] getNclocData() {
+    return codeLines.stream().toArray();
+  }
+
+  int getComments() {
+    return commentLines.cardinality();
+  }
+}
@@ -0,0 +1,247 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnalysisReportReaderTest {
+
+  private final String BASE_PATH = "src/test/resources/src";
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testRead() throws IOException {
+    // given
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    reader.read(new File(BASE_PATH, "bsl-json.json"), entries::add);
+
+    // then
+    assertThat(entries)
+      .hasSize(1)
+      .element(0)
+      .satisfies(entry -> assertThat(entry.getDiagnostics()).hasSize(4));
+  }
+
+  @Test
+  void testReadReportWithoutFileInfos() throws IOException {
+    // given
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    reader.read(new File(BASE_PATH, "empty2.json"), entries::add);
+
+    // then
+    assertThat(entries).isEmpty();
+  }
+
+  @Test
+  void testReadEmptyReport() throws IOException {
+    // given
+    var reportFile = Files.createFile(tempDir.resolve("empty.json"));
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // then
+    assertThatThrownBy(() -> reader.read(reportFile.toFile(), entries::add))
+      .isInstanceOf(JsonParseException.class)
+      .hasMessageContaining("Analysis report is empty");
+    assertThat(entries).isEmpty();
+  }
+
+  @Test
+  void testReadUnsupportedReport() throws IOException {
+    // given
+    var reportFile = Files.writeString(tempDir.resolve("report.json"), "\"fileinfos\"");
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // then
+    assertThatThrownBy(() -> reader.read(reportFile.toFile(), entries::add))
+      .isInstanceOf(JsonParseException.class)
+      .hasMessageContaining("Unsupported analysis report");
+    assertThat(entries).isEmpty();
+  }
+
+  @Test
+  void testReadGzipReport() throws IOException {
+    // given
+    var reportFile = tempDir.resolve("bsl-json.json.gz").toFile();
+    try (var outputStream = new GZIPOutputStream(new FileOutputStream(reportFile))) {
+      FileUtils.copyFile(new File(BASE_PATH, "bsl-json.json"), outputStream);
+    }
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    reader.read(reportFile, entries::add);
+
+    // then
+    assertThat(entries)
+      .hasSize(1)
+      .element(0)
+      .satisfies(entry -> assertThat(entry.getDiagnostics()).hasSize(4));
+  }
+
+  @Test
+  void testConvertToCompactReport() throws IOException {
+    // given
+    var reportFile = new File(BASE_PATH, "bsl-json.json");
+    var compactReportFile = tempDir.resolve("bsl-json.compact.gz");
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+    List<AnalysisReportEntry> compactEntries = new ArrayList<>();
+
+    // when
+    CompactReportWriter.main(new String[]{reportFile.getPath(), compactReportFile.toString()});
+    reader.read(reportFile, entries::add);
+    reader.read(compactReportFile.toFile(), compactEntries::add);
+
+    // then
+    assertThat(compactEntries).isEqualTo(entries);
+  }
+
+  @Test
+  void testReadCompactReport() throws IOException {
+    // given
+    var diagnostic = new Diagnostic();
+    diagnostic.setCode("OneStatementPerLine");
+    diagnostic.setSource("bsl-language-server");
+    diagnostic.setSeverity(DiagnosticSeverity.Information);
+    diagnostic.setMessage("Check message");
+    diagnostic.setRange(new Range(new Position(3, 15), new Position(3, 25)));
+    diagnostic.setRelatedInformation(List.of(
+      new DiagnosticRelatedInformation(
+        new Location("file:///fake.bsl", new Range(new Position(1, 0), new Position(1, 5))),
+        "+1"
+      )
+    ));
+
+    var secondDiagnostic = new Diagnostic();
+    secondDiagnostic.setCode("OneStatementPerLine");
+    secondDiagnostic.setMessage("Check message");
+    secondDiagnostic.setRange(new Range(new Position(4, 0), new Position(4, 1)));
+
+    var reportFile = tempDir.resolve("bsl-compact.ndjson");
+    try (var writer = new CompactReportWriter(Files.newOutputStream(reportFile))) {
+      writer.write(Path.of("first.bsl"), List.of(diagnostic, secondDiagnostic));
+      writer.write(Path.of("second.bsl"), List.of());
+    }
+
+    var reader = new AnalysisReportReader();
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    reader.read(reportFile.toFile(), entries::add);
+
+    // then
+    assertThat(entries)
+      .extracting(AnalysisReportEntry::getPath)
+      .containsExactly(Path.of("first.bsl"), Path.of("second.bsl"));
+    assertThat(entries.get(0).getDiagnostics()).containsExactly(diagnostic, secondDiagnostic);
+    assertThat(entries.get(1).getDiagnostics()).isEmpty();
+  }
+
+  @Test
+  void testReadGrowingCompactReport() throws Exception {
+    // given
+    var diagnostic = new Diagnostic();
+    diagnostic.setCode("OneStatementPerLine");
+    diagnostic.setMessage("Check message");
+    diagnostic.setRange(new Range(new Position(4, 0), new Position(4, 1)));
+
+    var reportFile = tempDir.resolve("bsl-compact.ndjson");
+    var writer = new CompactReportWriter(Files.newOutputStream(reportFile));
+    writer.write(Path.of("first.bsl"), List.of(diagnostic));
+    writer.flush();
+
+    var producer = new Thread(() -> {
+      try {
+        Thread.sleep(200);
+        writer.write(Path.of("second.bsl"), List.of(diagnostic));
+        writer.close();
+      } catch (IOException | InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    producer.start();
+
+    var reader = new AnalysisReportReader(5000);
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    reader.read(reportFile.toFile(), entries::add);
+    producer.join();
+
+    // then
+    assertThat(entries)
+      .extracting(AnalysisReportEntry::getPath)
+      .containsExactly(Path.of("first.bsl"), Path.of("second.bsl"));
+  }
+
+  @Test
+  void testReadGrowingReportTimeout() throws IOException {
+    // given
+    var reportFile = tempDir.resolve("bsl-compact.ndjson");
+    var writer = new CompactReportWriter(Files.newOutputStream(reportFile));
+    writer.write(Path.of("first.bsl"), List.of());
+    writer.flush();
+
+    var reader = new AnalysisReportReader(100);
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+
+    // when
+    assertThatThrownBy(() -> reader.read(reportFile.toFile(), entries::add))
+      .isInstanceOf(IOException.class);
+
+    // then
+    assertThat(entries).isEmpty();
+    writer.close();
+  }
+
+}
@@ -22,9 +22,11 @@
 package com.github._1c_syntax.bsl.sonar;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.Language;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
 import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRules;
@@ -42,6 +44,10 @@ import org.sonar.api.utils.Version;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -60,7 +66,7 @@ class BSLCoreSensorTest {
   void testDescriptor() {
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
 
-    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     DefaultSensorDescriptor sensorDescriptor = new DefaultSensorDescriptor();
     sensor.describe(sensorDescriptor);
 
@@ -84,7 +90,7 @@ class BSLCoreSensorTest {
 
     context = createSensorContext();
     setActiveRules(context, diagnosticName, ruleKey);
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -92,7 +98,7 @@ class BSLCoreSensorTest {
     context = createSensorContext();
     setActiveRules(context, diagnosticName, ruleKey);
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_ENABLED_KEY, false);
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -100,7 +106,7 @@ class BSLCoreSensorTest {
     context = createSensorContext();
     setActiveRules(context, diagnosticName, ruleKey);
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_DIAGNOSTIC_LANGUAGE_KEY, Language.EN.getLanguageCode());
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -109,7 +115,7 @@ class BSLCoreSensorTest {
     setActiveRules(context, diagnosticName, ruleKey);
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_OVERRIDE_CONFIGURATION_KEY, Boolean.TRUE.toString());
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_CONFIGURATION_PATH_KEY, Path.of(BASE_PATH, ".bsl-language-server.json").toString());
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -118,13 +124,64 @@ class BSLCoreSensorTest {
     setActiveRules(context, diagnosticName, ruleKey);
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_OVERRIDE_CONFIGURATION_KEY, Boolean.TRUE.toString());
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_CONFIGURATION_PATH_KEY, "fake.file");
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
 
   }
 
+  @Test
+  void testLargeFilesFirst() {
+    // given
+    InputFile smallFile = Tools.inputFileBSL("small.bsl", BASE_DIR, "А = 1;");
+    InputFile mediumFile = Tools.inputFileBSL("medium.bsl", BASE_DIR, "А = 1;\nБ = 2;\nВ = 3;");
+    InputFile largeFile = Tools.inputFileBSL("large.bsl", BASE_DIR, "А = 1;\nБ = 2;\nВ = 3;\nГ = 4;");
+    var inputFiles = List.of(smallFile, largeFile, mediumFile);
+
+    // when
+    var filesToProcess = BSLCoreSensor.largeFilesFirst(inputFiles, 3);
+    var filesInOriginalOrder = BSLCoreSensor.largeFilesFirst(inputFiles, 0);
+
+    // then
+    assertThat(filesToProcess).containsExactly(largeFile, mediumFile, smallFile);
+    assertThat(filesInOriginalOrder).containsExactly(smallFile, largeFile, mediumFile);
+  }
+
+  @Test
+  void testResultsAreSavedInProcessingOrder() {
+    // given
+    List<InputFile> savedFiles = Collections.synchronizedList(new ArrayList<>());
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenAnswer((InvocationOnMock invocation) -> {
+      savedFiles.add(invocation.getArgument(0));
+      return fileLinesContext;
+    });
+
+    SensorContextTester context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.LARGE_FILE_MIN_LINES_KEY, 10);
+    List<InputFile> inputFiles = new ArrayList<>();
+    inputFiles.add(context.fileSystem().inputFile(context.fileSystem().predicates().hasFilename(FILE_NAME)));
+    for (var i = 0; i < 20; i++) {
+      InputFile inputFile = Tools.inputFileBSL("small" + i + ".bsl", BASE_DIR, "А = " + i + ";");
+      context.fileSystem().add(inputFile);
+      inputFiles.add(inputFile);
+    }
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+
+    // when
+    sensor.execute(context);
+
+    // then
+    // the large file is processed first, the others follow in order of the file index
+    inputFiles.sort(Comparator.comparing(InputFile::uri));
+    assertThat(savedFiles).containsExactlyElementsOf(BSLCoreSensor.largeFilesFirst(inputFiles, 10));
+    assertThat(savedFiles.get(0).filename()).isEqualTo(FILE_NAME);
+    assertThat(context.measure("moduleKey:" + FILE_NAME, CoreMetrics.NCLOC)).isNotNull();
+    assertThat(context.measure("moduleKey:small0.bsl", CoreMetrics.NCLOC).value()).isEqualTo(1);
+  }
+
   @Test
   void testExecuteCastDiagnosticParameterValue() {
 
@@ -150,7 +207,7 @@ class BSLCoreSensorTest {
       .build();
     context.setActiveRules(activeRules);
 
-    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -172,7 +229,7 @@ class BSLCoreSensorTest {
     context = createSensorContext();
     context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_ENABLED_KEY, false);
     setActiveRules(context, diagnosticName, ruleKey);
-    sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
     sensor.execute(context);
 
     assertThat(context.isCancelled()).isFalse();
@@ -194,7 +251,7 @@ class BSLCoreSensorTest {
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
     when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
 
-    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory);
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
 
     sensor.execute(context);
 
@@ -206,6 +263,143 @@ class BSLCoreSensorTest {
 
   }
 
+  @Test
+  void testCpdTokens() {
+    SensorContextTester context = createSensorContext();
+
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+
+    sensor.execute(context);
+
+    String componentKey = "moduleKey:" + FILE_NAME;
+    var tokensLines = context.cpdTokens(componentKey);
+    assertThat(tokensLines).isNotNull().isNotEmpty();
+    assertThat(tokensLines.get(0).getStartLine()).isEqualTo(1);
+    assertThat(tokensLines.get(0).getValue()).isEqualTo("ФункцияОбработчик(Параметр1,Параметр2,Отказ,Параметр4)");
+    // comments are not passed to cpd
+    assertThat(tokensLines).noneMatch(tokensLine -> tokensLine.getStartLine() == 14);
+
+    context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.CPD_NORMALIZE_TOKENS_KEY, true);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    tokensLines = context.cpdTokens(componentKey);
+    assertThat(tokensLines).isNotNull().isNotEmpty();
+    assertThat(tokensLines.get(0).getValue()).isEqualTo("FUNCTION_KEYWORDОбработчик(Параметр1,Параметр2,Отказ,Параметр4)");
+
+    context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.CPD_MINIMUM_FILE_TOKENS_KEY, 1000);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    assertThat(context.cpdTokens(componentKey)).isNull();
+  }
+
+  @Test
+  void testLexerOnly() {
+    String diagnosticName = "OneStatementPerLine";
+    RuleKey ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, diagnosticName);
+    String componentKey = "moduleKey:" + FILE_NAME;
+
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+
+    SensorContextTester context = createSensorContext();
+    setActiveRules(context, diagnosticName, ruleKey);
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_MIN_LINES_KEY, 10);
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(context.cpdTokens(componentKey)).isNotNull().isNotEmpty();
+    assertThat(context.highlightingTypeAt(componentKey, 1, 0)).isNotEmpty();
+    assertThat(context.measure(componentKey, CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(context.measure(componentKey, CoreMetrics.COMMENT_LINES).value()).isEqualTo(1);
+    assertThat(context.measure(componentKey, CoreMetrics.COMPLEXITY)).isNull();
+
+    context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.LANG_SERVER_ENABLED_KEY, false);
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_WITHOUT_DIAGNOSTICS_KEY, true);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    assertThat(context.measure(componentKey, CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(context.measure(componentKey, CoreMetrics.STATEMENTS)).isNull();
+
+    context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_MIN_LINES_KEY, 10);
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_ENGINE_KEY, BSLCommunityProperties.LEXER_ONLY_ENGINE_FAST);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    assertThat(context.cpdTokens(componentKey)).isNotNull().isNotEmpty();
+    assertThat(context.highlightingTypeAt(componentKey, 1, 0)).isNotEmpty();
+    assertThat(context.measure(componentKey, CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(context.measure(componentKey, CoreMetrics.COMMENT_LINES).value()).isEqualTo(1);
+
+    // without parent configuration no module is locked
+    context = createSensorContext();
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_SUPPORT_LOCKED_KEY, true);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator());
+    sensor.execute(context);
+
+    assertThat(context.measure(componentKey, CoreMetrics.STATEMENTS)).isNotNull();
+  }
+
+  @Test
+  void testLexerOnlySupportLocked() {
+    // given
+    String diagnosticName = "OneStatementPerLine";
+    RuleKey ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, diagnosticName);
+    String componentKey = "moduleKey:" + FILE_NAME;
+
+    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(fileLinesContext);
+
+    SensorContextTester context = createSensorContext();
+    setActiveRules(context, diagnosticName, ruleKey);
+    context.settings().setProperty(BSLCommunityProperties.LEXER_ONLY_SUPPORT_LOCKED_KEY, true);
+
+    // the module is reported as not editable by the configuration support settings
+    BSLCoreSensor sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator()) {
+      @Override
+      boolean isSupportLocked(InputFile inputFile, ServerContext bslServerContext) {
+        return inputFile.filename().equals(FILE_NAME);
+      }
+    };
+
+    // when
+    sensor.execute(context);
+
+    // then
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(context.highlightingTypeAt(componentKey, 1, 0)).isNotEmpty();
+    assertThat(context.cpdTokens(componentKey)).isNotNull().isNotEmpty();
+    assertThat(context.measure(componentKey, CoreMetrics.NCLOC).value()).isEqualTo(11);
+    assertThat(context.measure(componentKey, CoreMetrics.STATEMENTS)).isNull();
+
+    // the same module is analyzed completely without the setting
+    context = createSensorContext();
+    setActiveRules(context, diagnosticName, ruleKey);
+    sensor = new BSLCoreSensor(context, fileLinesContextFactory, Tools.issueBudget(context), new IssueDeduplicator()) {
+      @Override
+      boolean isSupportLocked(InputFile inputFile, ServerContext bslServerContext) {
+        return true;
+      }
+    };
+    sensor.execute(context);
+
+    assertThat(context.allIssues()).isNotEmpty();
+    assertThat(context.measure(componentKey, CoreMetrics.STATEMENTS)).isNotNull();
+  }
+
   private void setActiveRules(SensorContextTester context, String diagnosticName, RuleKey ruleKey) {
     ActiveRules activeRules = new ActiveRulesBuilder()
       .addRule(new NewActiveRule.Builder()
@@ -34,7 +34,10 @@ import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -133,6 +136,55 @@ class BSLHighlighterTest {
 
   }
 
+  @Test
+  void testHighlightingRangesCompaction() throws IOException {
+    // given
+    var file = new File(BASE_DIR, FILE_NAME);
+    var content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+    documentContext = new DocumentContext(file.toURI());
+    documentContext.rebuild(content, 1);
+    inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR, content);
+
+    // when
+    var fullData = new BSLHighlighter(SensorContextTester.create(BASE_DIR), false)
+      .getHighlightingData(documentContext);
+    var compactData = new BSLHighlighter(SensorContextTester.create(BASE_DIR), true)
+      .getHighlightingData(documentContext);
+
+    context = SensorContextTester.create(Path.of("."));
+    highlighter = new BSLHighlighter(context);
+    highlighter.saveHighlighting(inputFile, compactData);
+
+    // then
+    assertThat(compactData.size())
+      .as("Compacted highlighting of %s: %d ranges of %d", FILE_NAME, compactData.size(), fullData.size())
+      .isLessThan(fullData.size());
+
+    String componentKey = "moduleKey:" + FILE_NAME;
+    for (var index = 0; index < fullData.size(); index++) {
+      checkTokenTypeAtPosition(
+        componentKey,
+        fullData.getStartLine(index),
+        fullData.getStartCharacter(index),
+        fullData.getType(index)
+      );
+    }
+  }
+
+  @Test
+  void testQueryMarkersPrescan() {
+    // given
+    var string = new CommonToken(BSLLexer.STRING, "\"Текст\"");
+    var queryStart = new CommonToken(BSLLexer.STRINGSTART, "\"выбрать");
+    var dropQuery = new CommonToken(BSLLexer.STRING, "\"Drop ВТ\"");
+    var identifier = new CommonToken(BSLLexer.IDENTIFIER, "Выбрать");
+
+    // then
+    assertThat(BSLHighlighter.hasQueryMarkers(List.of(string, identifier))).isFalse();
+    assertThat(BSLHighlighter.hasQueryMarkers(List.of(string, queryStart))).isTrue();
+    assertThat(BSLHighlighter.hasQueryMarkers(List.of(dropQuery))).isTrue();
+  }
+
   private void testHighlighting(Vocabulary vocabulary, Map<String, TypeOfText> highlightingMap) {
     // given
     initContext(vocabulary);
@@ -170,9 +222,16 @@ class BSLHighlighterTest {
       .collect(Collectors.joining());
 
     if (vocabulary.equals(SDBLLexer.VOCABULARY)) {
+      // queries are extracted only from modules with query-like strings
+      var queryString = new CommonToken(BSLLexer.STRING, "\"ВЫБРАТЬ\"");
+      queryString.setLine(2);
+      queryString.setCharPositionInLine(0);
+      content += "\n" + queryString.getText();
+
       SDBLTokenizer sdblTokenizer = mock(SDBLTokenizer.class);
       when(sdblTokenizer.getTokens()).thenReturn(tokens);
       when(documentContext.getQueries()).thenReturn(List.of(sdblTokenizer));
+      when(documentContext.getTokens()).thenReturn(List.of(queryString));
     } else {
       when(documentContext.getTokens()).thenReturn(tokens);
     }
@@ -46,7 +46,7 @@ class BSLPluginTest {
     SonarRuntime runtime = SonarRuntimeImpl.forSonarQube(VERSION_7_9, SonarQubeSide.SCANNER, SonarEdition.COMMUNITY);
     Plugin.Context context = new Plugin.Context(runtime);
     bslPlugin.define(context);
-    assertThat((List<?>) context.getExtensions()).hasSize(17);
+    assertThat((List<?>) context.getExtensions()).hasSize(39);
   }
 
   @Test
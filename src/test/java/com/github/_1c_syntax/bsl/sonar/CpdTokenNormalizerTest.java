@@ -0,0 +1,55 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CpdTokenNormalizerTest {
+
+  @Test
+  void testKeywordsAreCaseAndLanguageInsensitive() {
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.IF_KEYWORD, "ЕСЛИ"))
+      .isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.IF_KEYWORD, "Если"))
+      .isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.IF_KEYWORD, "If"));
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.TRUE, "Истина"))
+      .isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.TRUE, "true"));
+  }
+
+  @Test
+  void testLiteralsAreReplacedWithPlaceholders() {
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.STRING, "\"Да\""))
+      .isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.STRINGSTART, "\"Нет"));
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.DECIMAL, "1"))
+      .isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.FLOAT, "0.01"));
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.DATETIME, "'20210101'"))
+      .isNotEqualTo("'20210101'");
+  }
+
+  @Test
+  void testOtherTokensKeepText() {
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.IDENTIFIER, "Отказ")).isEqualTo("Отказ");
+    assertThat(CpdTokenNormalizer.getImage(BSLLexer.SEMICOLON, ";")).isEqualTo(";");
+  }
+}
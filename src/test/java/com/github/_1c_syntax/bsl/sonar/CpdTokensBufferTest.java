@@ -0,0 +1,83 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CpdTokensBufferTest {
+
+  @Test
+  void testAdd() {
+    // given
+    var buffer = new CpdTokensBuffer(1, false);
+    var keyword = new CommonToken(BSLLexer.IF_KEYWORD, "Если");
+    keyword.setLine(2);
+    keyword.setCharPositionInLine(4);
+    var whitespace = new CommonToken(BSLLexer.WHITE_SPACE, " ");
+    whitespace.setChannel(Token.HIDDEN_CHANNEL);
+    var identifier = new CommonToken(BSLLexer.IDENTIFIER, "Отказ");
+    identifier.setLine(2);
+    identifier.setCharPositionInLine(9);
+
+    // when
+    buffer.add(keyword);
+    buffer.add(whitespace);
+    buffer.add(identifier);
+
+    // then
+    assertThat(buffer.size()).isEqualTo(2);
+    assertThat(buffer.getLine(0)).isEqualTo(2);
+    assertThat(buffer.getStartCharacter(0)).isEqualTo(4);
+    assertThat(buffer.getEndCharacter(0)).isEqualTo(8);
+    assertThat(buffer.getImage(0)).isEqualTo("Если");
+    assertThat(buffer.getStartCharacter(1)).isEqualTo(9);
+    assertThat(buffer.getEndCharacter(1)).isEqualTo(14);
+    assertThat(buffer.getImage(1)).isEqualTo("Отказ");
+  }
+
+  @Test
+  void testAddNormalized() {
+    // given
+    var buffer = new CpdTokensBuffer(true);
+    var keyword = new CommonToken(BSLLexer.IF_KEYWORD, "Если");
+    keyword.setCharPositionInLine(4);
+    var string = new CommonToken(BSLLexer.STRING, "\"Да\"");
+    string.setCharPositionInLine(9);
+
+    // when
+    buffer.add(keyword);
+    buffer.add(string);
+
+    // then
+    assertThat(buffer.size()).isEqualTo(2);
+    assertThat(buffer.getImage(0)).isEqualTo(CpdTokenNormalizer.getImage(BSLLexer.IF_KEYWORD, "If"));
+    assertThat(buffer.getImage(1)).isNotEqualTo("\"Да\"");
+    // ranges still point to the original text
+    assertThat(buffer.getEndCharacter(0)).isEqualTo(8);
+    assertThat(buffer.getEndCharacter(1)).isEqualTo(13);
+  }
+}
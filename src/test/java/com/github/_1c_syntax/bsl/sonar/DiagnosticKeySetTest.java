@@ -0,0 +1,48 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiagnosticKeySetTest {
+
+  @Test
+  void testAdd() {
+    // given
+    var keySet = new DiagnosticKeySet();
+
+    // when
+    for (var line = 0; line < 1000; line++) {
+      assertThat(keySet.add(line % 3, line, 0, line, 10)).isTrue();
+    }
+
+    // then
+    assertThat(keySet.size()).isEqualTo(1000);
+    assertThat(keySet.add(1, 1, 0, 1, 10)).isFalse();
+    assertThat(keySet.add(2, 1, 0, 1, 10)).isTrue();
+    assertThat(keySet.add(1, 1, 0, 1, 11)).isTrue();
+    assertThat(keySet.size()).isEqualTo(1002);
+  }
+
+}
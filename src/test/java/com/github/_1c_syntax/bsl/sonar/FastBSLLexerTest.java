@@ -0,0 +1,220 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.BSLTokenizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastBSLLexerTest {
+
+  private static final List<Path> CORPUS = List.of(
+    Path.of("src/test/resources/src/test.bsl"),
+    Path.of("src/test/resources/lexer/corpus.bsl")
+  );
+
+  @Test
+  void testSameTokensAsBSLLexer() throws IOException {
+    for (Path path : CORPUS) {
+      // given
+      var content = Files.readString(path, StandardCharsets.UTF_8);
+      var expected = new BSLTokenizer(content).getTokens().stream()
+        .filter(FastBSLLexerTest::isSignificant)
+        .map(FastBSLLexerTest::describe)
+        .collect(Collectors.toList());
+
+      // when
+      var actual = describeSignificantTokens(new FastBSLLexer(content));
+
+      // then
+      assertThat(actual).as(path.toString()).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void testSameCpdImagesAsBSLLexer() throws IOException {
+    for (Path path : CORPUS) {
+      // given
+      var content = Files.readString(path, StandardCharsets.UTF_8);
+      var expected = new BSLTokenizer(content).getTokens().stream()
+        .filter(token -> token.getType() != Token.EOF && token.getChannel() == Token.DEFAULT_CHANNEL)
+        .map(FastBSLLexerTest::describeCpdImage)
+        .collect(Collectors.toList());
+
+      // when
+      var actual = new ArrayList<String>();
+      var lexer = new FastBSLLexer(content);
+      for (var token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+        if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+          actual.add(describeCpdImage(token));
+        }
+      }
+
+      // then
+      assertThat(actual).as(path.toString()).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  void testPreprocessorWords() {
+    // given
+    var lexer = new FastBSLLexer("#Область Если\n#ЕСЛИ Сервер И НЕ Клиент Тогда // Иначе\n#EndIf");
+
+    // then
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.HASH);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_REGION);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_IDENTIFIER);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.HASH);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_IF_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_SERVER_SYMBOL);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_AND_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_NOT_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_CLIENT_SYMBOL);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_THEN_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.LINE_COMMENT);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.HASH);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.PREPROC_ENDIF_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(Token.EOF);
+  }
+
+  @Test
+  void testKeywords() {
+    // given
+    var lexer = new FastBSLLexer("ЕСЛИ если If Если1 Объект.Выполнить Новый");
+
+    // then
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IF_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IF_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IF_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IDENTIFIER);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IDENTIFIER);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.DOT);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.IDENTIFIER);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(BSLLexer.NEW_KEYWORD);
+    assertThat(nextSignificantToken(lexer).getType()).isEqualTo(Token.EOF);
+  }
+
+  @Test
+  void testMultilineString() {
+    // given
+    var lexer = new FastBSLLexer("А = \"первая\n  |вторая \"\"в кавычках\"\"\n  |третья\";");
+    var tokens = new ArrayList<String>();
+
+    // when
+    for (var token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+      if (token.getType() != BSLLexer.WHITE_SPACE) {
+        tokens.add(token.getLine() + ":" + token.getCharPositionInLine() + " " + token.getText());
+      }
+    }
+
+    // then
+    assertThat(tokens).containsExactly(
+      "1:0 А",
+      "1:2 =",
+      "1:4 \"первая",
+      "2:2 |вторая \"\"в кавычках\"\"",
+      "3:2 |третья\"",
+      "3:10 ;"
+    );
+  }
+
+  @Test
+  void testDeletedBlock() {
+    // given
+    var lexer = new FastBSLLexer("#Удаление\nА = 1;\n#КонецУдаления\nБ = 2;");
+
+    // then
+    var token = lexer.nextToken();
+    assertThat(token.getType()).isEqualTo(BSLLexer.PREPROC_DELETE);
+    assertThat(token.getChannel()).isNotEqualTo(Token.DEFAULT_CHANNEL);
+    token = lexer.nextToken();
+    assertThat(token.getType()).isEqualTo(BSLLexer.PREPROC_DELETE_ANY);
+    assertThat(token.getText()).isEqualTo("\nА = 1;\n");
+    assertThat(lexer.nextToken().getType()).isEqualTo(BSLLexer.PREPROC_ENDDELETE);
+    assertThat(nextSignificantToken(lexer).getText()).isEqualTo("Б");
+    assertThat(lexer.getLine()).isEqualTo(4);
+  }
+
+  @Test
+  void testTokenIsReused() {
+    // given
+    var lexer = new FastBSLLexer("А = 1;");
+
+    // then
+    assertThat(lexer.nextToken()).isSameAs(lexer.nextToken());
+  }
+
+  private static Token nextSignificantToken(FastBSLLexer lexer) {
+    var token = lexer.nextToken();
+    while (token.getType() == BSLLexer.WHITE_SPACE) {
+      token = lexer.nextToken();
+    }
+    return token;
+  }
+
+  private static List<String> describeSignificantTokens(FastBSLLexer lexer) {
+    var tokens = new ArrayList<String>();
+    for (var token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+      if (isSignificant(token)) {
+        tokens.add(describe(token));
+      }
+    }
+    return tokens;
+  }
+
+  // whitespace and unknown chars may be split differently, but they are neither highlighted nor used by cpd
+  private static boolean isSignificant(Token token) {
+    return token.getType() != Token.EOF
+      && (token.getChannel() == Token.DEFAULT_CHANNEL || BSLHighlighter.getTypeOfTextBSL(token.getType()) != null);
+  }
+
+  private static String describeCpdImage(Token token) {
+    return String.format(
+      "%d:%d %s",
+      token.getLine(),
+      token.getCharPositionInLine(),
+      CpdTokenNormalizer.getImage(token.getType(), token.getText())
+    );
+  }
+
+  private static String describe(Token token) {
+    return String.format(
+      "%d:%d %s %s %s",
+      token.getLine(),
+      token.getCharPositionInLine(),
+      token.getText(),
+      token.getChannel() == Token.DEFAULT_CHANNEL ? "default" : "hidden",
+      BSLHighlighter.getTypeOfTextBSL(token.getType())
+    );
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileContentPrefetcherTest {
+
+  private final String BASE_PATH = "src/test/resources/src";
+  private final File BASE_DIR = new File(BASE_PATH).getAbsoluteFile();
+
+  @Test
+  void testFilesAreTakenInOrder() {
+    // given
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (var i = 0; i < 10; i++) {
+      inputFiles.add(Tools.inputFileBSL("file" + i + ".bsl", BASE_DIR, "А = " + i + ";"));
+    }
+
+    // when
+    List<FileContentPrefetcher.PrefetchedFile> prefetchedFiles = new ArrayList<>();
+    FileContentPrefetcher.PrefetchedFile lastFile;
+    try (var prefetcher = new FileContentPrefetcher(inputFiles, 2, 3)) {
+      FileContentPrefetcher.PrefetchedFile prefetchedFile;
+      while ((prefetchedFile = prefetcher.take()) != null) {
+        prefetchedFiles.add(prefetchedFile);
+      }
+      lastFile = prefetcher.take();
+    }
+
+    // then
+    assertThat(prefetchedFiles)
+      .extracting(FileContentPrefetcher.PrefetchedFile::getInputFile)
+      .containsExactlyElementsOf(inputFiles);
+    assertThat(prefetchedFiles)
+      .extracting(FileContentPrefetcher.PrefetchedFile::getIndex)
+      .containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    assertThat(lastFile).isNull();
+    assertThat(prefetchedFiles)
+      .allSatisfy(prefetchedFile -> assertThat(prefetchedFile.getContent()).startsWith("А = "));
+  }
+
+  @Test
+  void testFailedRead() throws IOException {
+    // given
+    InputFile brokenFile = mock(InputFile.class);
+    when(brokenFile.uri()).thenReturn(URI.create("file:///broken.bsl"));
+    when(brokenFile.inputStream()).thenThrow(new IllegalStateException("metadata is not available"));
+
+    List<InputFile> inputFiles = List.of(brokenFile);
+
+    // when
+    try (var prefetcher = new FileContentPrefetcher(inputFiles, 1, 1)) {
+
+      // then
+      assertThatThrownBy(prefetcher::take)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("broken.bsl")
+        .hasRootCauseMessage("metadata is not available");
+    }
+  }
+
+  @Test
+  void testUnreadableFile() throws IOException {
+    // given
+    InputFile unreadableFile = mock(InputFile.class);
+    when(unreadableFile.uri()).thenReturn(URI.create("file:///unreadable.bsl"));
+    when(unreadableFile.inputStream()).thenThrow(new IOException("access denied"));
+
+    // when
+    FileContentPrefetcher.PrefetchedFile prefetchedFile;
+    try (var prefetcher = new FileContentPrefetcher(List.of(unreadableFile), 1, 1)) {
+      prefetchedFile = prefetcher.take();
+    }
+
+    // then
+    assertThat(prefetchedFile).isNotNull();
+    assertThat(prefetchedFile.getInputFile()).isEqualTo(unreadableFile);
+    assertThat(prefetchedFile.getContent()).isEmpty();
+  }
+
+}
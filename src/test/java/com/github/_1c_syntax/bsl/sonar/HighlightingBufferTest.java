@@ -0,0 +1,93 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HighlightingBufferTest {
+
+  @Test
+  void testAddAndCopy() {
+    // given
+    var buffer = new HighlightingBuffer(1);
+
+    // when
+    buffer.add(1, 0, 1, 5, TypeOfText.KEYWORD);
+    buffer.add(2, 3, 4, 1, TypeOfText.STRING);
+    var copy = buffer.copy();
+    buffer.clear();
+
+    // then
+    assertThat(buffer.isEmpty()).isTrue();
+    assertThat(copy.size()).isEqualTo(2);
+    assertThat(copy.getStartLine(1)).isEqualTo(2);
+    assertThat(copy.getStartCharacter(1)).isEqualTo(3);
+    assertThat(copy.getEndLine(1)).isEqualTo(4);
+    assertThat(copy.getEndCharacter(1)).isEqualTo(1);
+    assertThat(copy.getType(0)).isEqualTo(TypeOfText.KEYWORD);
+    assertThat(copy.getType(1)).isEqualTo(TypeOfText.STRING);
+  }
+
+  @Test
+  void testSortByStart() {
+    // given
+    var buffer = new HighlightingBuffer();
+    buffer.add(2, 0, 2, 1, TypeOfText.KEYWORD);
+    buffer.add(3, 0, 3, 1, TypeOfText.KEYWORD);
+    buffer.add(1, 4, 1, 5, TypeOfText.STRING);
+    buffer.add(1, 0, 1, 1, TypeOfText.CONSTANT);
+
+    // when
+    buffer.sortByStart();
+
+    // then
+    assertThat(buffer.getType(0)).isEqualTo(TypeOfText.CONSTANT);
+    assertThat(buffer.getType(1)).isEqualTo(TypeOfText.STRING);
+    assertThat(buffer.getStartLine(2)).isEqualTo(2);
+    assertThat(buffer.getStartLine(3)).isEqualTo(3);
+  }
+
+  @Test
+  void testAppend() {
+    // given
+    var buffer = new HighlightingBuffer();
+
+    // when
+    buffer.append(1, 0, 1, 3, TypeOfText.KEYWORD, false);
+    buffer.append(1, 3, 1, 5, TypeOfText.KEYWORD, false);
+    buffer.append(1, 6, 1, 8, TypeOfText.KEYWORD, false);
+    buffer.append(2, 0, 2, 4, TypeOfText.KEYWORD, true);
+    buffer.append(2, 4, 2, 5, TypeOfText.STRING, true);
+
+    // then
+    assertThat(buffer.size()).isEqualTo(3);
+    assertThat(buffer.getEndCharacter(0)).isEqualTo(5);
+    assertThat(buffer.getStartCharacter(1)).isEqualTo(6);
+    assertThat(buffer.getEndLine(1)).isEqualTo(2);
+    assertThat(buffer.getEndCharacter(1)).isEqualTo(4);
+    assertThat(buffer.getType(2)).isEqualTo(TypeOfText.STRING);
+  }
+
+}
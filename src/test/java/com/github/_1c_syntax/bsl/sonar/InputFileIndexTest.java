@@ -0,0 +1,76 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InputFileIndexTest {
+
+  private final String BASE_PATH = "src/test/resources/src";
+  private final File BASE_DIR = new File(BASE_PATH).getAbsoluteFile();
+  private final String FILE_NAME = "test.bsl";
+
+  @Test
+  void testLookup() {
+    // given
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    context.fileSystem().add(inputFile);
+
+    // when
+    var index = Tools.inputFileIndex(context);
+
+    // then
+    assertThat(index.inputFiles()).containsExactly(inputFile);
+    assertThat(index.inputFile(inputFile.uri())).isEqualTo(inputFile);
+    assertThat(index.inputFile(Path.of(BASE_PATH, FILE_NAME))).isEqualTo(inputFile);
+    assertThat(index.inputFile(Path.of(BASE_PATH, "fake.bsl"))).isNull();
+  }
+
+  @Test
+  void testSourceRoots() {
+    // given
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+    context.settings().setProperty("sonar.sources", "., " + BASE_DIR.toPath().resolve("sub"));
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    InputFile subInputFile = Tools.inputFileBSL("sub/sub.bsl", BASE_DIR, "А = 1;");
+    context.fileSystem().add(inputFile);
+    context.fileSystem().add(subInputFile);
+
+    // when
+    var inputFilesBySourceRoot = Tools.inputFileIndex(context).inputFilesBySourceRoot();
+
+    // then
+    assertThat(inputFilesBySourceRoot).hasSize(2);
+    assertThat(inputFilesBySourceRoot.values())
+      .anySatisfy(inputFiles -> assertThat(inputFiles).containsExactly(inputFile))
+      .anySatisfy(inputFiles -> assertThat(inputFiles).containsExactly(subInputFile));
+  }
+
+}
@@ -61,7 +61,7 @@ class IssuesLoaderTest {
 
     SensorContextTester context = SensorContextTester.create(BASE_DIR);
     InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
-    IssuesLoader issuesLoader = new IssuesLoader(context);
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
 
     Diagnostic diagnostic = new Diagnostic();
     diagnostic.setCode(issueCode);
@@ -98,7 +98,7 @@ class IssuesLoaderTest {
     InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
     context.fileSystem().add(inputFile);
 
-    IssuesLoader issuesLoader = new IssuesLoader(context);
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
 
     Diagnostic diagnostic = new Diagnostic();
     diagnostic.setCode(diagnosticName);
@@ -162,7 +162,7 @@ class IssuesLoaderTest {
     InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
     context.fileSystem().add(inputFile);
 
-    IssuesLoader issuesLoader = new IssuesLoader(context);
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
 
     Diagnostic diagnostic = new Diagnostic();
     diagnostic.setCode(diagnosticName);
@@ -183,4 +183,165 @@ class IssuesLoaderTest {
       .isEqualTo(new DefaultTextRange(new DefaultTextPointer(4, 0), new DefaultTextPointer(4,0)))
     ;
   }
+
+  @Test
+  void issuesOverLimitAreAggregated() {
+    // given
+    final String diagnosticName = "OneStatementPerLine";
+    final RuleKey ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, diagnosticName);
+
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+    context.settings().setProperty(BSLCommunityProperties.ISSUES_MAX_PER_RULE_AND_FILE_KEY, 2);
+    context.settings().setProperty(BSLCommunityProperties.ISSUES_MAX_RELATED_LOCATIONS_KEY, 1);
+
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(ruleKey)
+        .setName(diagnosticName)
+        .build())
+      .build();
+    context.setActiveRules(activeRules);
+
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    context.fileSystem().add(inputFile);
+
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
+
+    var uri = inputFile.uri().toString();
+    var relatedInformation = List.of(
+      new DiagnosticRelatedInformation(
+        new Location(uri, new Range(new Position(11, 0), new Position(11, 8))),
+        "+1"
+      ),
+      new DiagnosticRelatedInformation(
+        new Location(uri, new Range(new Position(12, 0), new Position(12, 5))),
+        "+1"
+      )
+    );
+
+    // when
+    for (var line = 0; line < 5; line++) {
+      Diagnostic diagnostic = new Diagnostic();
+      diagnostic.setCode(diagnosticName);
+      diagnostic.setSeverity(DiagnosticSeverity.Information);
+      diagnostic.setMessage("Check message OneStatementPerLine");
+      diagnostic.setRange(new Range(new Position(line, 0), new Position(line, 1)));
+      diagnostic.setRelatedInformation(relatedInformation);
+      issuesLoader.createIssue(inputFile, diagnostic);
+    }
+    issuesLoader.saveAggregatedIssues();
+
+    // then
+    assertThat(context.allIssues())
+      .hasSize(3)
+      .allSatisfy(issue -> assertThat(issue.flows()).hasSize(1))
+      .anySatisfy(issue -> assertThat(issue.primaryLocation().message()).contains("3"));
+  }
+
+  @Test
+  void summaryIssueIsSavedOverProjectLimit() {
+    // given
+    final String diagnosticName = "OneStatementPerLine";
+    final RuleKey ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, diagnosticName);
+
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+    context.settings().setProperty(BSLCommunityProperties.ISSUES_MAX_PER_PROJECT_KEY, 2);
+
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(ruleKey)
+        .setName(diagnosticName)
+        .build())
+      .build();
+    context.setActiveRules(activeRules);
+
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    context.fileSystem().add(inputFile);
+
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
+
+    // when
+    for (var line = 0; line < 5; line++) {
+      Diagnostic diagnostic = new Diagnostic();
+      diagnostic.setCode(diagnosticName);
+      diagnostic.setSeverity(DiagnosticSeverity.Information);
+      diagnostic.setMessage("Check message OneStatementPerLine");
+      diagnostic.setRange(new Range(new Position(line, 0), new Position(line, 1)));
+      issuesLoader.createIssue(inputFile, diagnostic);
+    }
+    issuesLoader.saveAggregatedIssues();
+
+    // then
+    assertThat(context.allIssues())
+      .hasSize(3)
+      .filteredOn(issue -> issue.primaryLocation().message().contains("aggregated"))
+      .hasSize(1)
+      .allSatisfy(issue -> assertThat(issue.primaryLocation().message()).contains("3 issues"));
+  }
+
+  @Test
+  void issuesPerRuleAndFileAreNotLimitedByDefault() {
+    // given
+    final String diagnosticName = "OneStatementPerLine";
+    final RuleKey ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, diagnosticName);
+
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+
+    ActiveRules activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(ruleKey)
+        .setName(diagnosticName)
+        .build())
+      .build();
+    context.setActiveRules(activeRules);
+
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    context.fileSystem().add(inputFile);
+
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), new IssueDeduplicator());
+
+    // when
+    // ranges differ only in the end character, so the diagnostics are not deduplicated
+    for (var character = 1; character <= 1500; character++) {
+      Diagnostic diagnostic = new Diagnostic();
+      diagnostic.setCode(diagnosticName);
+      diagnostic.setSeverity(DiagnosticSeverity.Information);
+      diagnostic.setMessage("Check message OneStatementPerLine");
+      diagnostic.setRange(new Range(new Position(0, 0), new Position(0, character)));
+      issuesLoader.createIssue(inputFile, diagnostic);
+    }
+    issuesLoader.saveAggregatedIssues();
+
+    // then
+    assertThat(context.allIssues()).hasSize(1500);
+  }
+
+  @Test
+  void duplicateIssuesAreSavedOnce() {
+
+    SensorContextTester context = SensorContextTester.create(BASE_DIR);
+    InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR);
+    var issueDeduplicator = new IssueDeduplicator();
+    IssuesLoader issuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), issueDeduplicator);
+    IssuesLoader anotherIssuesLoader = new IssuesLoader(context, Tools.inputFileIndex(context), Tools.issueBudget(context), issueDeduplicator);
+
+    Diagnostic diagnostic = new Diagnostic();
+    diagnostic.setCode("Test");
+    diagnostic.setSeverity(DiagnosticSeverity.Information);
+    diagnostic.setMessage("Check message");
+    diagnostic.setRange(new Range(new Position(0, 0), new Position(0, 1)));
+
+    Diagnostic anotherDiagnostic = new Diagnostic();
+    anotherDiagnostic.setCode("Test");
+    anotherDiagnostic.setSeverity(DiagnosticSeverity.Information);
+    anotherDiagnostic.setMessage("Check message");
+    anotherDiagnostic.setRange(new Range(new Position(0, 0), new Position(0, 2)));
+
+    issuesLoader.createIssue(inputFile, diagnostic);
+    issuesLoader.createIssue(inputFile, diagnostic);
+    anotherIssuesLoader.createIssue(inputFile, diagnostic);
+    anotherIssuesLoader.createIssue(inputFile, anotherDiagnostic);
+
+    assertThat(context.allExternalIssues()).hasSize(2);
+  }
 }
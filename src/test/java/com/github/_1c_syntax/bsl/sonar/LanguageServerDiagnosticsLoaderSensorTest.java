@@ -23,6 +23,7 @@ package com.github._1c_syntax.bsl.sonar;
 
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRules;
@@ -35,6 +36,9 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -48,7 +52,7 @@ class LanguageServerDiagnosticsLoaderSensorTest {
     void test_describe() {
 
         SensorContextTester context = SensorContextTester.create(BASE_DIR);
-        LanguageServerDiagnosticsLoaderSensor diagnosticsLoaderSensor = new LanguageServerDiagnosticsLoaderSensor(context);
+        LanguageServerDiagnosticsLoaderSensor diagnosticsLoaderSensor = new LanguageServerDiagnosticsLoaderSensor(context, Tools.issueBudget(context), new IssueDeduplicator());
         DefaultSensorDescriptor sensorDescriptor = new DefaultSensorDescriptor();
         diagnosticsLoaderSensor.describe(sensorDescriptor);
 
@@ -76,11 +80,58 @@ class LanguageServerDiagnosticsLoaderSensorTest {
                 .build();
         context.setActiveRules(activeRules);
 
-        LanguageServerDiagnosticsLoaderSensor diagnosticsLoaderSensor = new LanguageServerDiagnosticsLoaderSensor(context);
+        LanguageServerDiagnosticsLoaderSensor diagnosticsLoaderSensor = new LanguageServerDiagnosticsLoaderSensor(context, Tools.issueBudget(context), new IssueDeduplicator());
         diagnosticsLoaderSensor.execute(context);
 
         assertThat(context.isCancelled()).isFalse();
 
     }
 
+    @Test
+    void test_executeWithCache(@TempDir Path cacheDir) throws IOException {
+
+        var firstRunContext = createContextWithCache(cacheDir);
+        new LanguageServerDiagnosticsLoaderSensor(firstRunContext, Tools.issueBudget(firstRunContext), new IssueDeduplicator())
+                .execute(firstRunContext);
+
+        try (var cacheFiles = Files.walk(cacheDir)) {
+            assertThat(cacheFiles.filter(Files::isRegularFile)).hasSize(1);
+        }
+
+        var secondRunContext = createContextWithCache(cacheDir);
+        new LanguageServerDiagnosticsLoaderSensor(secondRunContext, Tools.issueBudget(secondRunContext), new IssueDeduplicator())
+                .execute(secondRunContext);
+
+        assertThat(firstRunContext.allExternalIssues()).hasSize(4);
+        assertThat(secondRunContext.allExternalIssues()).hasSize(4);
+
+    }
+
+    @Test
+    void test_executeWithCacheOfModuleWithoutReportedFiles(@TempDir Path cacheDir) throws IOException {
+
+        // the report is cached by a module which doesn't contain the reported file
+        var firstRunContext = SensorContextTester.create(BASE_DIR);
+        firstRunContext.settings().setProperty("sonar.bsl.languageserver.reportPaths", "bsl-json.json");
+        firstRunContext.settings().setProperty("sonar.bsl.languageserver.reportCacheDir", cacheDir.toString());
+        new LanguageServerDiagnosticsLoaderSensor(firstRunContext, Tools.issueBudget(firstRunContext), new IssueDeduplicator())
+                .execute(firstRunContext);
+
+        var secondRunContext = createContextWithCache(cacheDir);
+        new LanguageServerDiagnosticsLoaderSensor(secondRunContext, Tools.issueBudget(secondRunContext), new IssueDeduplicator())
+                .execute(secondRunContext);
+
+        assertThat(firstRunContext.allExternalIssues()).isEmpty();
+        assertThat(secondRunContext.allExternalIssues()).hasSize(4);
+
+    }
+
+    private SensorContextTester createContextWithCache(Path cacheDir) {
+        SensorContextTester context = SensorContextTester.create(BASE_DIR);
+        context.settings().setProperty("sonar.bsl.languageserver.reportPaths", "bsl-json.json");
+        context.settings().setProperty("sonar.bsl.languageserver.reportCacheDir", cacheDir.toString());
+        context.fileSystem().add(Tools.inputFileBSL(FILE_NAME, BASE_DIR));
+        return context;
+    }
+
 }
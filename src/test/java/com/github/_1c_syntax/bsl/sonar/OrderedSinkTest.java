@@ -0,0 +1,217 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderedSinkTest {
+
+  @Test
+  void testItemsAreConsumedInOrder() {
+    // given
+    List<Integer> consumed = new ArrayList<>();
+
+    // when
+    try (var sink = new OrderedSink<Integer>("test-writer", 16, consumed::add)) {
+      produceInOrder(1000, number -> sink.accept(number, number));
+    }
+
+    // then
+    assertThat(consumed)
+      .hasSize(1000)
+      .isSorted();
+  }
+
+  @Test
+  void testItemsAfterGapAreFlushedOnClose() {
+    // given
+    List<String> consumed = new ArrayList<>();
+
+    // when
+    try (var sink = new OrderedSink<String>("test-writer", 16, consumed::add)) {
+      sink.accept(3, "three");
+      sink.accept(0, "zero");
+      sink.accept(2, "two");
+    }
+
+    // then
+    assertThat(consumed).containsExactly("zero", "two", "three");
+  }
+
+  @Test
+  void testSlowConsumerHoldsBackProducers() {
+    // given
+    var capacity = 4;
+    var accepted = new AtomicInteger();
+    var consumed = new AtomicInteger();
+    var maxHeld = new AtomicInteger();
+    List<Integer> consumedItems = new ArrayList<>();
+
+    // when
+    try (var sink = new OrderedSink<Integer>("test-writer", capacity, (Integer item) -> {
+      sleep(1);
+      consumedItems.add(item);
+      consumed.incrementAndGet();
+    })) {
+      produceInOrder(200, (int number) -> {
+        sink.accept(number, number);
+        maxHeld.accumulateAndGet(accepted.incrementAndGet() - consumed.get(), Math::max);
+      });
+    }
+
+    // then
+    assertThat(consumedItems)
+      .hasSize(200)
+      .isSorted();
+    assertThat(maxHeld.get()).isLessThanOrEqualTo(capacity + 1);
+  }
+
+  @Test
+  void testSlowConsumerHoldsBackUnorderedProducers() {
+    // given
+    var capacity = 4;
+    var accepted = new AtomicInteger();
+    var consumed = new AtomicInteger();
+    var maxHeld = new AtomicInteger();
+
+    // when
+    try (var sink = new OrderedSink<Integer>("test-writer", capacity, (Integer item) -> {
+      sleep(1);
+      consumed.incrementAndGet();
+    })) {
+      IntStream.range(0, 200).parallel().forEach((int number) -> {
+        sink.accept(number);
+        maxHeld.accumulateAndGet(accepted.incrementAndGet() - consumed.get(), Math::max);
+      });
+    }
+
+    // then
+    assertThat(consumed.get()).isEqualTo(200);
+    assertThat(maxHeld.get()).isLessThanOrEqualTo(capacity + 1);
+  }
+
+  @Test
+  void testProducerAheadOfWindowWaits() throws InterruptedException {
+    // given
+    List<String> consumed = new ArrayList<>();
+    var accepted = new CountDownLatch(1);
+
+    try (var sink = new OrderedSink<String>("test-writer", 2, consumed::add)) {
+      var producer = new Thread(() -> {
+        sink.accept(2, "two");
+        accepted.countDown();
+      });
+
+      // when
+      producer.start();
+
+      // then
+      assertThat(accepted.await(100, TimeUnit.MILLISECONDS)).isFalse();
+
+      sink.accept(0, "zero");
+      sink.accept(1, "one");
+      assertThat(accepted.await(10, TimeUnit.SECONDS)).isTrue();
+      producer.join();
+    }
+
+    assertThat(consumed).containsExactly("zero", "one", "two");
+  }
+
+  @Test
+  void testConsumerExceptionIsRethrown() {
+    var sink = new OrderedSink<String>("test-writer", 16, item -> {
+      throw new IllegalArgumentException(item);
+    });
+    sink.accept(0, "zero");
+
+    assertThatThrownBy(sink::close)
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("zero");
+  }
+
+  @Test
+  void testConsumerErrorIsRethrown() {
+    // given
+    List<String> consumed = new ArrayList<>();
+    var sink = new OrderedSink<String>("test-writer", 1, (String item) -> {
+      if ("zero".equals(item)) {
+        throw new AssertionError(item);
+      }
+      consumed.add(item);
+    });
+
+    // when
+    IntStream.range(0, 10).forEach(number -> sink.accept(number, number == 0 ? "zero" : "item"));
+
+    // then
+    assertThatThrownBy(sink::close)
+      .isInstanceOf(AssertionError.class)
+      .hasMessage("zero");
+    assertThat(consumed).hasSize(9);
+  }
+
+  // like sensor workers, producers take numbers in order, so the number the writer waits for
+  // is never left behind a producer blocked by the window
+  private static void produceInOrder(int count, IntConsumer producer) {
+    var nextNumber = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (var i = 0; i < 4; i++) {
+      var thread = new Thread(() -> {
+        int number;
+        while ((number = nextNumber.getAndIncrement()) < count) {
+          producer.accept(number);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    threads.forEach(OrderedSinkTest::join);
+  }
+
+  private static void join(Thread thread) {
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
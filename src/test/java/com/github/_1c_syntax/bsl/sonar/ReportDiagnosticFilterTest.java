@@ -0,0 +1,91 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.config.internal.MapSettings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportDiagnosticFilterTest {
+
+  @Test
+  void testEmptyFilter() {
+    // given
+    var filter = new ReportDiagnosticFilter(new MapSettings().asConfig());
+
+    // then
+    assertThat(filter.isEmpty()).isTrue();
+    assertThat(filter.acceptsPath("src/test.bsl")).isTrue();
+    assertThat(filter.accepts(diagnostic("Test", "acc", DiagnosticSeverity.Hint))).isTrue();
+  }
+
+  @Test
+  void testDiagnosticFilter() {
+    // given
+    var settings = new MapSettings();
+    settings.setProperty(BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_SOURCES_KEY, "acc,bsl-language-server");
+    settings.setProperty(BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_CODES_KEY, "Excluded");
+    settings.setProperty(BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_SEVERITIES_KEY, "Hint, information");
+    var filter = new ReportDiagnosticFilter(settings.asConfig());
+
+    // then
+    assertThat(filter.isEmpty()).isFalse();
+    assertThat(filter.accepts(diagnostic("Test", "acc", DiagnosticSeverity.Error))).isTrue();
+    assertThat(filter.accepts(diagnostic("Test", "bsl-language-server", DiagnosticSeverity.Warning))).isTrue();
+    assertThat(filter.accepts(diagnostic("Test", "other", DiagnosticSeverity.Error))).isFalse();
+    assertThat(filter.accepts(diagnostic("Test", null, DiagnosticSeverity.Error))).isFalse();
+    assertThat(filter.accepts(diagnostic("Excluded", "acc", DiagnosticSeverity.Error))).isFalse();
+    assertThat(filter.accepts(diagnostic("Test", "acc", DiagnosticSeverity.Information))).isFalse();
+    assertThat(filter.accepts(diagnostic("Test", "acc", DiagnosticSeverity.Hint))).isFalse();
+  }
+
+  @Test
+  void testPathFilter() {
+    // given
+    var settings = new MapSettings();
+    settings.setProperty(BSLCommunityProperties.LANG_SERVER_REPORT_INCLUDE_PATHS_KEY, "src/**/*.bsl");
+    settings.setProperty(BSLCommunityProperties.LANG_SERVER_REPORT_EXCLUDE_PATHS_KEY, "src/vendor/**");
+    var filter = new ReportDiagnosticFilter(settings.asConfig());
+
+    // then
+    assertThat(filter.acceptsPath("src/CommonModules/Module.bsl")).isTrue();
+    assertThat(filter.acceptsPath("src/vendor/Module.bsl")).isFalse();
+    assertThat(filter.acceptsPath("other/Module.bsl")).isFalse();
+    assertThat(filter.acceptsPath("src/CommonModules/Module.os")).isFalse();
+  }
+
+  private static Diagnostic diagnostic(String code, String source, DiagnosticSeverity severity) {
+    var diagnostic = new Diagnostic();
+    diagnostic.setCode(code);
+    diagnostic.setSource(source);
+    diagnostic.setSeverity(severity);
+    diagnostic.setMessage("Check message");
+    diagnostic.setRange(new Range(new Position(0, 0), new Position(0, 1)));
+    return diagnostic;
+  }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportImportCacheTest {
+
+  private final File REPORT_FILE = new File("src/test/resources/src", "bsl-json.json");
+  private final Path BASE_DIR = Path.of("src/test/resources/src");
+
+  @TempDir
+  Path cacheDir;
+
+  @Test
+  void testWriteAndReplay() throws IOException {
+    // given
+    var diagnostic = new Diagnostic();
+    diagnostic.setCode("OneStatementPerLine");
+    diagnostic.setSource("bsl-language-server");
+    diagnostic.setSeverity(DiagnosticSeverity.Information);
+    diagnostic.setMessage("Check message");
+    diagnostic.setRange(new Range(new Position(3, 15), new Position(3, 25)));
+    diagnostic.setRelatedInformation(List.of(
+      new DiagnosticRelatedInformation(
+        new Location("file:///fake.bsl", new Range(new Position(1, 0), new Position(1, 5))),
+        "+1"
+      )
+    ));
+
+    var secondDiagnostic = new Diagnostic();
+    secondDiagnostic.setCode("OneStatementPerLine");
+    secondDiagnostic.setMessage("Check message");
+    secondDiagnostic.setRange(new Range(new Position(4, 0), new Position(4, 1)));
+
+    var path = Path.of("src/test/resources/src/test.bsl");
+    var cache = new ReportImportCache(cacheDir, BASE_DIR, "");
+    var cacheFile = cache.cacheFile(REPORT_FILE);
+
+    // when
+    try (var writer = cache.newWriter(cacheFile)) {
+      writer.write(path, List.of(diagnostic, secondDiagnostic));
+      writer.commit();
+    }
+
+    List<AnalysisReportEntry> entries = new ArrayList<>();
+    cache.replay(cacheFile, new AnalysisReportReader(), entries::add);
+
+    // then
+    assertThat(entries)
+      .hasSize(1)
+      .element(0)
+      .satisfies((AnalysisReportEntry entry) -> {
+        assertThat(entry.getPath()).isEqualTo(path);
+        assertThat(entry.getDiagnostics()).containsExactly(diagnostic, secondDiagnostic);
+      });
+  }
+
+  @Test
+  void testUncommittedWriteIsDiscarded() throws IOException {
+    // given
+    var cache = new ReportImportCache(cacheDir, BASE_DIR, "");
+    var cacheFile = cache.cacheFile(REPORT_FILE);
+
+    // when
+    try (var writer = cache.newWriter(cacheFile)) {
+      writer.write(Path.of("fake.bsl"), List.of());
+    }
+
+    // then
+    assertThat(cacheFile).doesNotExist();
+    try (var files = Files.list(cacheFile.getParent())) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void testCacheKey() throws IOException {
+    // given
+    var cache = new ReportImportCache(cacheDir, BASE_DIR, "");
+    var anotherCache = new ReportImportCache(cacheDir, BASE_DIR, "sonar.bsl.languageserver.report.excludeCodes=Test");
+    var anotherModuleCache = new ReportImportCache(cacheDir, BASE_DIR.resolve("module"), "");
+
+    // then
+    assertThat(cache.cacheFile(REPORT_FILE))
+      .isEqualTo(cache.cacheFile(REPORT_FILE))
+      .isNotEqualTo(anotherCache.cacheFile(REPORT_FILE))
+      .isNotEqualTo(cache.cacheFile(new File("src/test/resources/src", "bsl-json2.json")));
+    assertThat(anotherModuleCache.cacheFile(REPORT_FILE).getFileName())
+      .isEqualTo(cache.cacheFile(REPORT_FILE).getFileName());
+    assertThat(anotherModuleCache.cacheFile(REPORT_FILE).getParent())
+      .isNotEqualTo(cache.cacheFile(REPORT_FILE).getParent());
+  }
+
+  @Test
+  void testPrune() throws IOException {
+    // given
+    var cache = new ReportImportCache(cacheDir, BASE_DIR, "");
+    var cacheFile = cache.cacheFile(REPORT_FILE);
+    try (var writer = cache.newWriter(cacheFile)) {
+      writer.commit();
+    }
+
+    var moduleCacheDir = cacheFile.getParent();
+    var digest = "0".repeat(64);
+    var staleCacheFile = Files.createFile(moduleCacheDir.resolve(digest + ".cache"));
+    var staleTempFile = Files.createFile(moduleCacheDir.resolve(digest + ".cache123.tmp"));
+    var otherFile = Files.createFile(moduleCacheDir.resolve("other.txt"));
+    var otherCacheFile = Files.createFile(moduleCacheDir.resolve("other.cache"));
+    var otherTempFile = Files.createFile(moduleCacheDir.resolve("other.tmp"));
+
+    var anotherModuleCache = new ReportImportCache(cacheDir, BASE_DIR.resolve("module"), "");
+    var anotherModuleCacheFile = anotherModuleCache.cacheFile(new File("src/test/resources/src", "bsl-json2.json"));
+    try (var writer = anotherModuleCache.newWriter(anotherModuleCacheFile)) {
+      writer.commit();
+    }
+
+    // when
+    cache.prune();
+
+    // then
+    assertThat(cacheFile).exists();
+    assertThat(otherFile).exists();
+    assertThat(otherCacheFile).exists();
+    assertThat(otherTempFile).exists();
+    assertThat(staleCacheFile).doesNotExist();
+    assertThat(staleTempFile).doesNotExist();
+    assertThat(anotherModuleCacheFile).exists();
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.sonar.acc.ACCRuleDefinition;
+import com.github._1c_syntax.bsl.sonar.language.BSLLanguageServerRuleDefinition;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.rule.RuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleDecisionTableTest {
+
+  @Test
+  void testActiveRule() {
+    // given
+    var ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, "OneStatementPerLine");
+    var table = new RuleDecisionTable(activeRules(ruleKey), true);
+
+    // when
+    var decision = table.get("OneStatementPerLine", false);
+
+    // then
+    assertThat(decision.getKind()).isEqualTo(RuleDecision.Kind.ACTIVE_RULE);
+    assertThat(decision.getRuleKey()).isEqualTo(ruleKey);
+    assertThat(table.get("OneStatementPerLine", false)).isSameAs(decision);
+  }
+
+  @Test
+  void testExternalIssue() {
+    // given
+    var ruleKey = RuleKey.of(BSLLanguageServerRuleDefinition.REPOSITORY_KEY, "OneStatementPerLine");
+    var table = new RuleDecisionTable(activeRules(ruleKey), true);
+
+    // when
+    var bslDecision = table.get("Test", false);
+    var accDecision = table.get("OneStatementPerLine", true);
+
+    // then
+    assertThat(bslDecision.getKind()).isEqualTo(RuleDecision.Kind.EXTERNAL_ISSUE);
+    assertThat(bslDecision.getEngineId()).isEqualTo(RuleDecisionTable.BSL_LS_ENGINE_ID);
+    assertThat(accDecision.getKind()).isEqualTo(RuleDecision.Kind.EXTERNAL_ISSUE);
+    assertThat(accDecision.getEngineId()).isEqualTo(ACCRuleDefinition.SOURCE);
+  }
+
+  @Test
+  void testDropACCIssue() {
+    // given
+    var ruleKey = RuleKey.of(ACCRuleDefinition.REPOSITORY_KEY, "1000");
+    var table = new RuleDecisionTable(activeRules(ruleKey), false);
+
+    // when
+    var activeDecision = table.get("1000", true);
+    var inactiveDecision = table.get("1001", true);
+
+    // then
+    assertThat(activeDecision.getKind()).isEqualTo(RuleDecision.Kind.ACTIVE_RULE);
+    assertThat(inactiveDecision.getKind()).isEqualTo(RuleDecision.Kind.DROP);
+  }
+
+  private static ActiveRules activeRules(RuleKey ruleKey) {
+    return new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(ruleKey)
+        .setName(ruleKey.rule())
+        .build())
+      .build();
+  }
+}
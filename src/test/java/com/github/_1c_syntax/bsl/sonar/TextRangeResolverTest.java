@@ -0,0 +1,106 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultTextPointer;
+import org.sonar.api.batch.fs.internal.DefaultTextRange;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TextRangeResolverTest {
+
+  private final String BASE_PATH = "src/test/resources/src";
+  private final File BASE_DIR = new File(BASE_PATH).getAbsoluteFile();
+  private final String FILE_NAME = "test.bsl";
+
+  private final InputFile inputFile = Tools.inputFileBSL(FILE_NAME, BASE_DIR, "А = 1;\n\nБ = 2;");
+  private final TextRangeResolver resolver = new TextRangeResolver();
+
+  @Test
+  void testValidRange() {
+    var textRange = resolver.getTextRange(inputFile, range(0, 0, 0, 6), "Test");
+
+    assertThat(textRange).isEqualTo(textRange(1, 0, 1, 6));
+  }
+
+  @Test
+  void testClampCharacter() {
+    var textRange = resolver.getTextRange(inputFile, range(2, 0, 2, 7), "Test");
+
+    assertThat(textRange).isEqualTo(textRange(3, 0, 3, 6));
+  }
+
+  @Test
+  void testClampLine() {
+    var textRange = resolver.getTextRange(inputFile, range(0, 4, 5, 0), "Test");
+
+    assertThat(textRange).isEqualTo(textRange(1, 4, 3, 6));
+  }
+
+  @Test
+  void testEmptyRange() {
+    var textRange = resolver.getTextRange(inputFile, range(1, 0, 1, 25), "Test");
+
+    assertThat(textRange).isEqualTo(textRange(2, 0, 2, 0));
+  }
+
+  @Test
+  void testRangeAfterEndOfFile() {
+    var textRange = resolver.getTextRange(inputFile, range(10, 0, 10, 5), "Test");
+
+    assertThat(textRange).isEqualTo(textRange(3, 0, 3, 6));
+  }
+
+  @Test
+  void testReleaseAll() {
+    // given
+    var relatedInputFile = spy(Tools.inputFileBSL("related.bsl", BASE_DIR, "В = 3;"));
+    resolver.getTextRange(relatedInputFile, range(0, 0, 0, 6), "Test");
+
+    // when
+    resolver.releaseAll();
+    resolver.getTextRange(relatedInputFile, range(0, 0, 0, 6), "Test");
+
+    // then
+    verify(relatedInputFile, times(2)).lines();
+  }
+
+  private static Range range(int startLine, int startChar, int endLine, int endChar) {
+    return new Range(new Position(startLine, startChar), new Position(endLine, endChar));
+  }
+
+  private static DefaultTextRange textRange(int startLine, int startChar, int endLine, int endChar) {
+    return new DefaultTextRange(
+      new DefaultTextPointer(startLine, startChar),
+      new DefaultTextPointer(endLine, endChar)
+    );
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * This file is a part of SonarQube 1C (BSL) Community Plugin.
+ *
+ * Copyright © 2018-2021
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Fedkin <nixel2007@gmail.com>
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * SonarQube 1C (BSL) Community Plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * SonarQube 1C (BSL) Community Plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with SonarQube 1C (BSL) Community Plugin.
+ */
+package com.github._1c_syntax.bsl.sonar;
+
+import com.github._1c_syntax.bsl.parser.BSLTokenizer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenLineMetricsTest {
+
+  @Test
+  void testLineMetrics() {
+    // given
+    var content = "Процедура Тест()\n" +
+      "    // Комментарий\n" +
+      "\n" +
+      "    А = 1; // в конце строки\n" +
+      "КонецПроцедуры\n";
+    var lineMetrics = new TokenLineMetrics();
+
+    // when
+    new BSLTokenizer(content).getTokens().forEach(lineMetrics::add);
+
+    // then
+    assertThat(lineMetrics.getNcloc()).isEqualTo(3);
+    assertThat(lineMetrics.getNclocData()).containsExactly(1, 4, 5);
+    assertThat(lineMetrics.getComments()).isEqualTo(2);
+  }
+}
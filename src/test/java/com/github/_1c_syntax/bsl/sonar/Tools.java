@@ -24,6 +24,7 @@ package com.github._1c_syntax.bsl.sonar;
 import com.github._1c_syntax.bsl.sonar.language.BSLLanguage;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.SensorContext;
 
 import java.io.File;
 import java.io.IOException;
@@ -43,6 +44,14 @@ public class Tools {
       .build();
   }
 
+  public static InputFileIndex inputFileIndex(SensorContext context) {
+    return new InputFileIndex(context.fileSystem(), context.config());
+  }
+
+  public static IssueBudget issueBudget(SensorContext context) {
+    return new IssueBudget(context.config());
+  }
+
   public static InputFile inputFileBSL(String name, File baseDir) {
 
     File file = new File(baseDir.getAbsoluteFile(), name);